@@ -0,0 +1,167 @@
+package com.alten.ecommerce.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sparse, symmetric product-product co-occurrence counts: how many baskets (carts or wishlists) hold both products.
+ * One {@link LongIntHashMap} row per product, guarded by its own monitor, so updates on different products
+ * do not contend and a row costs about 12 bytes per neighbour.
+ */
+public class CoOccurrenceMatrix {
+
+    private static final int SPLIT_THRESHOLD = 512;
+
+    // Higher count first, ties go to the lower product id
+    private static final Comparator<Neighbour> ORDER = Comparator.comparingInt(Neighbour::count)
+            .thenComparing(Neighbour::productId, Comparator.reverseOrder());
+
+    private final Map<Long, LongIntHashMap> rows = new ConcurrentHashMap<>();
+
+    /**
+     * Build the matrix from whole baskets, splitting the baskets across a fork-join pool
+     * and merging the partial matrices
+     */
+    public static CoOccurrenceMatrix build(List<long[]> baskets, ForkJoinPool pool) {
+        return pool.invoke(new BuildTask(baskets, 0, baskets.size()));
+    }
+
+    /**
+     * A product entered a basket already holding the others
+     */
+    public void added(long productId, long[] others) {
+        for (long other : others) {
+            if (other != productId) {
+                increment(productId, other, 1);
+                increment(other, productId, 1);
+            }
+        }
+    }
+
+    /**
+     * A product left a basket that still holds the others
+     */
+    public void removed(long productId, long[] others) {
+        for (long other : others) {
+            if (other != productId) {
+                increment(productId, other, -1);
+                increment(other, productId, -1);
+            }
+        }
+    }
+
+    /**
+     * Drop a product and every count involving it
+     */
+    public void removeProduct(long productId) {
+        LongIntHashMap row = rows.remove(productId);
+        if (row == null) {
+            return;
+        }
+        List<Long> neighbours = new ArrayList<>();
+        synchronized (row) {
+            row.forEach((neighbour, count) -> neighbours.add(neighbour));
+        }
+        for (long neighbour : neighbours) {
+            LongIntHashMap neighbourRow = rows.get(neighbour);
+            if (neighbourRow != null) {
+                synchronized (neighbourRow) {
+                    neighbourRow.remove(productId);
+                }
+            }
+        }
+    }
+
+    public int count(long productId, long otherId) {
+        LongIntHashMap row = rows.get(productId);
+        if (row == null) {
+            return 0;
+        }
+        synchronized (row) {
+            return row.get(otherId);
+        }
+    }
+
+    /**
+     * @return up to limit products most often found together with the given one, strongest first
+     */
+    public List<Neighbour> topNeighbours(long productId, int limit) {
+        LongIntHashMap row = rows.get(productId);
+        if (row == null || limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Neighbour> heap = new PriorityQueue<>(limit + 1, ORDER);
+        synchronized (row) {
+            row.forEach((neighbour, count) -> {
+                if (heap.size() < limit) {
+                    heap.add(new Neighbour(neighbour, count));
+                } else if (count > heap.peek().count() || (count == heap.peek().count() && neighbour < heap.peek().productId())) {
+                    heap.poll();
+                    heap.add(new Neighbour(neighbour, count));
+                }
+            });
+        }
+        return heap.stream().sorted(ORDER.reversed()).toList();
+    }
+
+    private void increment(long productId, long otherId, int delta) {
+        LongIntHashMap row = delta > 0 ? rows.computeIfAbsent(productId, id -> new LongIntHashMap()) : rows.get(productId);
+        if (row != null) {
+            synchronized (row) {
+                row.addTo(otherId, delta);
+            }
+        }
+    }
+
+    private void addBasket(long[] basket) {
+        for (int i = 0; i < basket.length; i++) {
+            for (int j = 0; j < basket.length; j++) {
+                if (basket[i] != basket[j]) {
+                    increment(basket[i], basket[j], 1);
+                }
+            }
+        }
+    }
+
+    private CoOccurrenceMatrix merge(CoOccurrenceMatrix other) {
+        other.rows.forEach((productId, row) -> row.forEach((neighbour, count) -> increment(productId, neighbour, count)));
+        return this;
+    }
+
+    public record Neighbour(long productId, int count) {}
+
+    private static final class BuildTask extends RecursiveTask<CoOccurrenceMatrix> {
+
+        private final List<long[]> baskets;
+        private final int from;
+        private final int to;
+
+        private BuildTask(List<long[]> baskets, int from, int to) {
+            this.baskets = baskets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CoOccurrenceMatrix compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                CoOccurrenceMatrix matrix = new CoOccurrenceMatrix();
+                for (int i = from; i < to; i++) {
+                    matrix.addBasket(baskets.get(i));
+                }
+                return matrix;
+            }
+            int middle = (from + to) >>> 1;
+            BuildTask left = new BuildTask(baskets, from, middle);
+            left.fork();
+            CoOccurrenceMatrix right = new BuildTask(baskets, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
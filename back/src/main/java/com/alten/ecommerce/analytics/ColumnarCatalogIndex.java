@@ -0,0 +1,257 @@
+package com.alten.ecommerce.analytics;
+
+import com.alten.ecommerce.models.InventoryStatus;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The sortable and filterable product columns as parallel primitive arrays, one row per product:
+ * price in cents, rating scaled by 100 (-1 when unrated), quantity, inventory status ordinal and a
+ * dictionary-encoded category. Filters are a single branch-free pass over the arrays, and sorting or top-K
+ * selection runs on a primitive heap, so a query allocates a few arrays and no objects per product.
+ * <p>
+ * Rows are updated in place under a write lock; queries share the read lock.
+ */
+public class ColumnarCatalogIndex {
+
+    public enum SortKey {
+        PRICE,
+        RATING,
+        QUANTITY
+    }
+
+    /**
+     * Optional filters, a null field means no filter. The category is matched ignoring case.
+     */
+    public record Filter(
+            String category,
+            InventoryStatus inventoryStatus,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            BigDecimal minRating,
+            Integer minQuantity
+    ) {}
+
+    private static final int UNRATED = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Row + 1 per product id, 0 meaning absent
+    private LongIntHashMap rowById = new LongIntHashMap();
+    private final Map<String, Short> categoryOrdinals = new HashMap<>();
+
+    private long[] ids = new long[16];
+    private long[] priceCents = new long[16];
+    private int[] rating = new int[16];
+    private int[] quantity = new int[16];
+    private byte[] status = new byte[16];
+    private short[] category = new short[16];
+    private int size;
+
+    public void put(long id, String categoryName, InventoryStatus inventoryStatus, BigDecimal price,
+                    BigDecimal productRating, int productQuantity) {
+        lock.writeLock().lock();
+        try {
+            int row = rowById.get(id) - 1;
+            if (row < 0) {
+                row = size++;
+                if (row == ids.length) {
+                    grow();
+                }
+                rowById.addTo(id, row + 1);
+            }
+            ids[row] = id;
+            priceCents[row] = price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            rating[row] = productRating == null ? UNRATED : productRating.movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+            quantity[row] = productQuantity;
+            status[row] = (byte) inventoryStatus.ordinal();
+            category[row] = categoryOrdinals.computeIfAbsent(categoryName.toLowerCase(Locale.ROOT),
+                    name -> (short) categoryOrdinals.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int row = rowById.get(id) - 1;
+            if (row < 0) {
+                return;
+            }
+            rowById.remove(id);
+            // Move the last row into the hole so the columns stay dense
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                priceCents[row] = priceCents[last];
+                rating[row] = rating[last];
+                quantity[row] = quantity[last];
+                status[row] = status[last];
+                category[row] = category[last];
+                rowById.addTo(ids[row], row - last);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rowById = new LongIntHashMap();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param sort       column to order by, null for product id order
+     * @param descending true for the highest values first; ties are always broken by ascending product id
+     * @param limit      maximum number of ids returned
+     * @return ids of the matching products, in order
+     */
+    public long[] query(Filter filter, SortKey sort, boolean descending, int limit) {
+        long minPrice = filter.minPrice() == null ? Long.MIN_VALUE
+                : filter.minPrice().movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+        long maxPrice = filter.maxPrice() == null ? Long.MAX_VALUE
+                : filter.maxPrice().movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+        int minRating = filter.minRating() == null ? Integer.MIN_VALUE
+                : Math.max(0, filter.minRating().movePointRight(2).setScale(0, RoundingMode.CEILING).intValue());
+        int minQuantity = filter.minQuantity() == null ? Integer.MIN_VALUE : filter.minQuantity();
+        int wantedStatus = filter.inventoryStatus() == null ? -1 : filter.inventoryStatus().ordinal();
+
+        lock.readLock().lock();
+        try {
+            int wantedCategory = -1;
+            if (filter.category() != null) {
+                Short ordinal = categoryOrdinals.get(filter.category().toLowerCase(Locale.ROOT));
+                if (ordinal == null) {
+                    return new long[0];
+                }
+                wantedCategory = ordinal;
+            }
+
+            // Non short-circuit operators keep the loop body free of branches
+            int[] matches = new int[size];
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                boolean match = (priceCents[row] >= minPrice) & (priceCents[row] <= maxPrice)
+                        & (rating[row] >= minRating) & (quantity[row] >= minQuantity)
+                        & (wantedStatus < 0 | status[row] == wantedStatus)
+                        & (wantedCategory < 0 | category[row] == wantedCategory);
+                matches[count] = row;
+                count += match ? 1 : 0;
+            }
+
+            long[] keys = new long[count];
+            long[] matchIds = new long[count];
+            for (int i = 0; i < count; i++) {
+                int row = matches[i];
+                long key = sort == null ? 0 : switch (sort) {
+                    case PRICE -> priceCents[row];
+                    case RATING -> rating[row];
+                    case QUANTITY -> quantity[row];
+                };
+                keys[i] = descending ? -key : key;
+                matchIds[i] = ids[row];
+            }
+            return topK(keys, matchIds, Math.min(limit, count));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Select the k smallest (key, id) pairs in ascending order with a max-heap holding the best k seen so far
+     */
+    private static long[] topK(long[] keys, long[] ids, int k) {
+        if (k <= 0) {
+            return new long[0];
+        }
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (heapSize < k) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, keys, ids);
+            } else if (before(i, heap[0], keys, ids)) {
+                heap[0] = i;
+                siftDown(heap, heapSize, keys, ids);
+            }
+        }
+
+        long[] result = new long[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = ids[heap[0]];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, keys, ids);
+        }
+        return result;
+    }
+
+    private static boolean before(int a, int b, long[] keys, long[] ids) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && ids[a] < ids[b]);
+    }
+
+    private static void siftUp(int[] heap, int index, long[] keys, long[] ids) {
+        int item = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(heap[parent], item, keys, ids)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = item;
+    }
+
+    private static void siftDown(int[] heap, int size, long[] keys, long[] ids) {
+        if (size == 0) {
+            return;
+        }
+        int item = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child], heap[child + 1], keys, ids)) {
+                child++;
+            }
+            if (!before(item, heap[child], keys, ids)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = item;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        rating = Arrays.copyOf(rating, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        status = Arrays.copyOf(status, capacity);
+        category = Arrays.copyOf(category, capacity);
+    }
+}
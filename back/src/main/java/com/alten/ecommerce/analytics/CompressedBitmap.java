@@ -0,0 +1,411 @@
+package com.alten.ecommerce.analytics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ids, laid out like a roaring bitmap: ids are grouped by their high bits into chunks
+ * of 65536, and each chunk holds either a sorted array of its low 16 bits (up to 4096 of them) or a plain 8 KB
+ * bitset once it is denser than that. A chunk lookup is a binary search over a handful of keys and the member test
+ * inside it at most twelve comparisons, so membership, add and remove do not grow with the set.
+ * Not thread safe.
+ */
+public class CompressedBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITSET_WORDS = 1024;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte ARRAY = 0;
+    private static final byte BITSET = 1;
+
+    private long[] keys = new long[0];
+    private Container[] containers = new Container[0];
+    private int size;
+
+    public static CompressedBitmap of(Iterable<Long> ids) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (Long id : ids) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    /**
+     * @return false when the id was already there
+     */
+    public boolean add(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, id >>> 16, new ArrayContainer());
+        }
+        Container container = containers[index];
+        if (container.contains((char) id)) {
+            return false;
+        }
+        containers[index] = container.add((char) id);
+        return true;
+    }
+
+    /**
+     * @return false when the id was not there
+     */
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        if (index < 0 || !containers[index].contains((char) id)) {
+            return false;
+        }
+        Container container = containers[index].remove((char) id);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+        return true;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Ids present in both bitmaps, chunk by chunk, without materialising either set
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.insertContainer(result.size, keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Every id, in ascending order
+     */
+    public long[] toArray() {
+        long[] ids = new long[cardinality()];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            position = containers[i].copyTo(keys[i] << 16, ids, position);
+        }
+        return ids;
+    }
+
+    public CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.containers = new Container[size];
+        for (int i = 0; i < size; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    public byte[] serialize() {
+        int length = 1 + Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            length += Long.BYTES + 1 + Integer.BYTES + containers[i].serializedSize();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(FORMAT_VERSION).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(keys[i]);
+            containers[i].writeTo(buffer);
+        }
+        return buffer.array();
+    }
+
+    public static CompressedBitmap deserialize(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown bitmap format");
+        }
+        CompressedBitmap bitmap = new CompressedBitmap();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            long key = buffer.getLong();
+            byte type = buffer.get();
+            int cardinality = buffer.getInt();
+            Container container;
+            if (type == ARRAY) {
+                char[] values = new char[cardinality];
+                buffer.asCharBuffer().get(values);
+                buffer.position(buffer.position() + cardinality * Character.BYTES);
+                container = new ArrayContainer(values, cardinality);
+            } else {
+                long[] words = new long[BITSET_WORDS];
+                buffer.asLongBuffer().get(words);
+                buffer.position(buffer.position() + BITSET_WORDS * Long.BYTES);
+                container = new BitsetContainer(words, cardinality);
+            }
+            bitmap.insertContainer(bitmap.size, key, container);
+        }
+        return bitmap;
+    }
+
+    private void insertContainer(int index, long key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * The low 16 bits of the ids of one chunk. Mutations return the container to keep, which may be a new one
+     * of the other kind.
+     */
+    private interface Container {
+
+        boolean contains(char value);
+
+        Container add(char value);
+
+        Container remove(char value);
+
+        int cardinality();
+
+        Container and(Container other);
+
+        int copyTo(long base, long[] ids, int position);
+
+        Container copy();
+
+        int serializedSize();
+
+        void writeTo(ByteBuffer buffer);
+    }
+
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            if (cardinality == ARRAY_MAX) {
+                return toBitset().add(value);
+            }
+            int index = -Arrays.binarySearch(values, 0, cardinality, value) - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public int copyTo(long base, long[] ids, int position) {
+            for (int i = 0; i < cardinality; i++) {
+                ids[position++] = base | values[i];
+            }
+            return position;
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+        }
+
+        @Override
+        public int serializedSize() {
+            return cardinality * Character.BYTES;
+        }
+
+        @Override
+        public void writeTo(ByteBuffer buffer) {
+            buffer.put(ARRAY).putInt(cardinality);
+            for (int i = 0; i < cardinality; i++) {
+                buffer.putChar(values[i]);
+            }
+        }
+
+        private BitsetContainer toBitset() {
+            long[] words = new long[BITSET_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitsetContainer(words, cardinality);
+        }
+    }
+
+    private static final class BitsetContainer implements Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitsetContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            words[value >>> 6] |= 1L << value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            words[value >>> 6] &= ~(1L << value);
+            cardinality--;
+            if (cardinality > ARRAY_MAX) {
+                return this;
+            }
+            char[] values = new char[ARRAY_MAX];
+            copyTo(values);
+            return new ArrayContainer(values, cardinality);
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitsetContainer) other).words;
+            long[] result = new long[BITSET_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitsetContainer bitset = new BitsetContainer(result, count);
+            if (count > ARRAY_MAX) {
+                return bitset;
+            }
+            char[] values = new char[count];
+            bitset.copyTo(values);
+            return new ArrayContainer(values, count);
+        }
+
+        @Override
+        public int copyTo(long base, long[] ids, int position) {
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    ids[position++] = base | ((long) i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return position;
+        }
+
+        @Override
+        public Container copy() {
+            return new BitsetContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public int serializedSize() {
+            return BITSET_WORDS * Long.BYTES;
+        }
+
+        @Override
+        public void writeTo(ByteBuffer buffer) {
+            buffer.put(BITSET).putInt(cardinality);
+            for (long word : words) {
+                buffer.putLong(word);
+            }
+        }
+
+        private void copyTo(char[] values) {
+            int position = 0;
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[position++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.alten.ecommerce.analytics;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Event counts per product over a sliding time window, with the top K products kept ready to read.
+ * <p>
+ * The window is a ring of fixed-width time buckets. Each bucket holds the counts recorded during it, and a
+ * running total per product is kept beside the ring. When a bucket expires its counts are subtracted from the
+ * totals. Between expiries counts only grow, so a min-heap of the K best totals stays exact: a product can only
+ * enter by beating the weakest entry. After an expiry, or a removal, the heap is rebuilt from the totals.
+ * <p>
+ * Writers synchronize on the instance and only update the heap. The sorted ranking readers see is published by
+ * {@link #advance}, which must be called periodically: it also expires buckets when there are no writes. A query
+ * then costs O(K) whatever the traffic, and a write never sorts, at the price of a ranking up to one tick old.
+ */
+public class SlidingWindowTopK {
+
+    // Higher count ranks higher, ties go to the lower product id
+    private static final Comparator<Ranked> ORDER = Comparator.comparingLong(Ranked::count)
+            .thenComparing(Ranked::productId, Comparator.reverseOrder());
+
+    private final long bucketMillis;
+    private final int k;
+    private final Map<Long, long[]>[] buckets;
+    private final Map<Long, long[]> totals = new HashMap<>();
+    private final PriorityQueue<Ranked> heap;
+    private final Map<Long, Ranked> inHeap = new HashMap<>();
+    private long currentBucket;
+    // Whether the heap changed since the ranking was last published
+    private boolean changed;
+    private volatile List<Ranked> ranking = List.of();
+
+    /**
+     * @param bucketCount  number of buckets in the ring, the window spans bucketCount * bucketMillis
+     * @param bucketMillis width of a bucket
+     * @param k            number of products kept in the ranking
+     * @param now          current time in epoch millis
+     */
+    @SuppressWarnings("unchecked")
+    public SlidingWindowTopK(int bucketCount, long bucketMillis, int k, long now) {
+        this.bucketMillis = bucketMillis;
+        this.k = k;
+        this.buckets = new Map[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new HashMap<>();
+        }
+        this.heap = new PriorityQueue<>(k + 1, ORDER);
+        this.currentBucket = now / bucketMillis;
+    }
+
+    /**
+     * Count one event, visible in {@link #top} after the next {@link #advance}
+     */
+    public synchronized void record(long productId, long now) {
+        expire(now);
+        buckets[slot(currentBucket)].computeIfAbsent(productId, id -> new long[1])[0]++;
+        long count = ++totals.computeIfAbsent(productId, id -> new long[1])[0];
+        offer(productId, count);
+        changed = true;
+    }
+
+    /**
+     * Expire the buckets that fell out of the window, then publish the ranking if it changed
+     */
+    public synchronized void advance(long now) {
+        expire(now);
+        if (changed) {
+            publish();
+        }
+    }
+
+    private void expire(long now) {
+        long bucket = now / bucketMillis;
+        if (bucket <= currentBucket) {
+            return;
+        }
+        long expired = Math.min(bucket - currentBucket, buckets.length);
+        for (long i = 1; i <= expired; i++) {
+            Map<Long, long[]> expiring = buckets[slot(currentBucket + i)];
+            for (Map.Entry<Long, long[]> entry : expiring.entrySet()) {
+                long[] total = totals.get(entry.getKey());
+                total[0] -= entry.getValue()[0];
+                if (total[0] == 0) {
+                    totals.remove(entry.getKey());
+                }
+            }
+            expiring.clear();
+        }
+        currentBucket = bucket;
+        rebuild();
+    }
+
+    /**
+     * Forget a product, e.g. once it is deleted. Unlike a write, this republishes the ranking at once.
+     */
+    public synchronized void remove(long productId) {
+        totals.remove(productId);
+        for (Map<Long, long[]> bucket : buckets) {
+            bucket.remove(productId);
+        }
+        if (inHeap.containsKey(productId)) {
+            rebuild();
+            publish();
+        }
+    }
+
+    /**
+     * @return up to limit products, highest count first
+     */
+    public List<Ranked> top(int limit) {
+        List<Ranked> current = ranking;
+        return current.subList(0, Math.min(limit, current.size()));
+    }
+
+    private void offer(long productId, long count) {
+        Ranked previous = inHeap.remove(productId);
+        if (previous != null) {
+            heap.remove(previous);
+        }
+        Ranked ranked = new Ranked(productId, count);
+        if (heap.size() < k) {
+            add(ranked);
+        } else if (ORDER.compare(ranked, heap.peek()) > 0) {
+            inHeap.remove(heap.poll().productId());
+            add(ranked);
+        }
+    }
+
+    private void add(Ranked ranked) {
+        heap.add(ranked);
+        inHeap.put(ranked.productId(), ranked);
+    }
+
+    private void rebuild() {
+        heap.clear();
+        inHeap.clear();
+        totals.forEach((productId, count) -> offer(productId, count[0]));
+        changed = true;
+    }
+
+    private void publish() {
+        ranking = heap.stream().sorted(ORDER.reversed()).toList();
+        changed = false;
+    }
+
+    private int slot(long bucket) {
+        return (int) (bucket % buckets.length);
+    }
+
+    public record Ranked(long productId, long count) {}
+}
@@ -0,0 +1,28 @@
+package com.alten.ecommerce.cache;
+
+/**
+ * Delivered on every node once a catalog or wishlist write has committed somewhere in the cluster.
+ * Delivery may repeat, so handlers must be idempotent (evicting or reloading an entry is).
+ *
+ * @param sequence   position in the bus, increasing in publication order
+ * @param entityKey  product id, category name, or the email of the wishlist's user
+ * @param originNode node that performed the write
+ * @param local      true when the write happened on this node
+ */
+public record CacheInvalidationEvent(
+        long sequence,
+        EntityType entityType,
+        String entityKey,
+        String originNode,
+        boolean local
+) {
+    public enum EntityType {
+        PRODUCT,
+        CATEGORY,
+        WISHLIST;
+
+        public boolean catalog() {
+            return this != WISHLIST;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Turns catalog writes into invalidations: the product itself plus every category list it left or joined.
+ * Runs inside the writing transaction so an outbox bus commits the invalidation together with the change.
+ */
+@Component
+public class CatalogInvalidationPublisher {
+
+    private final InvalidationBus invalidationBus;
+
+    public CatalogInvalidationPublisher(InvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidationBus.publish(CacheInvalidationEvent.EntityType.PRODUCT, String.valueOf(event.productId()));
+
+        Set<String> categories = new LinkedHashSet<>();
+        addCategory(categories, event.before());
+        addCategory(categories, event.after());
+        categories.forEach(category -> invalidationBus.publish(CacheInvalidationEvent.EntityType.CATEGORY, category));
+    }
+
+    private static void addCategory(Set<String> categories, ProductDTO product) {
+        if (product != null && product.category() != null) {
+            categories.add(product.category());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.alten.ecommerce.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-node bus delivering invalidations to this JVM only, for tests and local development
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.bus", havingValue = "in-process")
+public class InProcessInvalidationBus implements InvalidationBus {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public InProcessInvalidationBus(ApplicationEventPublisher eventPublisher,
+                                    @Value("${app.cache.invalidation.node-id:${random.uuid}}") String nodeId) {
+        this.eventPublisher = eventPublisher;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void publish(CacheInvalidationEvent.EntityType entityType, String entityKey) {
+        InvalidationBus.afterCommit(() -> eventPublisher.publishEvent(
+                new CacheInvalidationEvent(sequence.incrementAndGet(), entityType, entityKey, nodeId, true)));
+    }
+}
@@ -0,0 +1,32 @@
+package com.alten.ecommerce.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Broadcasts entity-level cache invalidations to every backend node as {@link CacheInvalidationEvent}s.
+ * Selected with {@code app.cache.invalidation.bus}.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Queue an invalidation as part of the current transaction. It is delivered only if the transaction commits.
+     */
+    void publish(CacheInvalidationEvent.EntityType entityType, String entityKey);
+
+    /**
+     * Run an action after the current transaction commits, or immediately when none is active
+     */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
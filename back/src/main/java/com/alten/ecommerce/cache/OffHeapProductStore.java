@@ -0,0 +1,377 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.analytics.LongIntHashMap;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.projections.ProductVersionProjection;
+import com.alten.ecommerce.repositories.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Every product as a compact binary {@link ProductRecord} in one buffer outside the GC heap, with a primitive
+ * id to offset index, so a large catalog costs the collector a handful of objects instead of millions.
+ * <p>
+ * Writes are copy-on-write: a changed product is appended and the index repointed, a deleted one gets a
+ * tombstone. When the buffer is full the live records are copied into a new one, sized from what is live,
+ * so views handed out earlier keep reading the bytes they were created on.
+ * <p>
+ * With {@code app.cache.offheap.directory} set the buffer is a memory-mapped file, reopened on restart and only
+ * reconciled against the database's modification times; otherwise it is plain direct memory, filled at startup.
+ */
+@Component
+@Slf4j
+public class OffHeapProductStore {
+
+    private static final int MAGIC = 0x50524F44;
+    private static final int FORMAT_VERSION = 1;
+    // Header: magic, store format version, end of the last complete record, record format version
+    private static final int END = 8;
+    private static final int RECORD_VERSION = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int LOAD_BATCH_SIZE = 1_000;
+    private static final String FILE_PREFIX = "products-";
+    private static final String FILE_SUFFIX = ".store";
+
+    private final ProductRepository productRepository;
+    private final Path directory;
+    private final int initialCapacity;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Record offset per product id, offsets are never 0 because of the header
+    private LongIntHashMap offsets = new LongIntHashMap();
+    private ByteBuffer buffer;
+    private long generation;
+    private int end;
+    private long garbage;
+
+    public OffHeapProductStore(ProductRepository productRepository,
+                               @Value("${app.cache.offheap.directory:}") String directory,
+                               @Value("${app.cache.offheap.initial-capacity:16MB}") DataSize initialCapacity) {
+        this.productRepository = productRepository;
+        this.directory = directory.isBlank() ? null : Path.of(directory).toAbsolutePath().normalize();
+        this.initialCapacity = (int) Math.min(MAX_CAPACITY, Math.max(HEADER_SIZE * 2, initialCapacity.toBytes()));
+        open();
+    }
+
+    /**
+     * @return a view of the product's record, or null when the product is not in the store
+     */
+    public ProductRecord get(long id) {
+        lock.readLock().lock();
+        try {
+            int offset = offsets.get(id);
+            return offset == 0 ? null : new ProductRecord(buffer, offset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store the product unless the store already holds a more recent version of it
+     */
+    public void put(ProductDTO product) {
+        byte[] record = ProductRecord.encode(product);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(record.length);
+            int previous = offsets.get(product.id());
+            if (previous != 0) {
+                Long storedAt = new ProductRecord(buffer, previous).updatedAt();
+                if (storedAt != null && product.updatedAt() != null && storedAt > product.updatedAt()) {
+                    return;
+                }
+                garbage += ProductRecord.length(buffer, previous);
+            }
+            offsets.addTo(product.id(), append(record) - previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (offsets.get(id) == 0) {
+                return;
+            }
+            ensureCapacity(ProductRecord.TOMBSTONE_SIZE);
+            garbage += ProductRecord.length(buffer, offsets.get(id)) + ProductRecord.TOMBSTONE_SIZE;
+            append(ProductRecord.tombstone(id));
+            offsets.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return offsets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bring the store in line with the database: reload products that are missing or whose modification time
+     * differs, and drop those that no longer exist. After a restart on a mapped file this only reads changed rows.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LongIntHashMap existing = new LongIntHashMap();
+        List<Long> stale = new ArrayList<>();
+        for (ProductVersionProjection version : productRepository.findAllVersions()) {
+            existing.addTo(version.id(), 1);
+            ProductRecord record = get(version.id());
+            Long updatedAt = version.updatedAt() == null ? null
+                    : version.updatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            if (record == null || !Objects.equals(record.updatedAt(), updatedAt)) {
+                stale.add(version.id());
+            }
+        }
+
+        List<Long> deleted = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            offsets.forEach((id, offset) -> {
+                if (existing.get(id) == 0) {
+                    deleted.add(id);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        deleted.forEach(this::remove);
+
+        for (int from = 0; from < stale.size(); from += LOAD_BATCH_SIZE) {
+            productRepository.findByIdIn(stale.subList(from, Math.min(stale.size(), from + LOAD_BATCH_SIZE)))
+                    .forEach(product -> put(ProductDTO.fromEntity(product)));
+        }
+        log.info("Off-heap product store holds {} products, {} reloaded and {} dropped", size(), stale.size(),
+                deleted.size());
+    }
+
+    /**
+     * Runs before {@link ProductJsonCache} evicts, so a read that refills it after the eviction sees the new record
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.entityType() != CacheInvalidationEvent.EntityType.PRODUCT) {
+            return;
+        }
+        long id = Long.parseLong(event.entityKey());
+        productRepository.findByIdIn(List.of(id)).stream()
+                .findFirst()
+                .ifPresentOrElse(product -> put(ProductDTO.fromEntity(product)), () -> remove(id));
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (buffer instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() {
+        if (directory == null) {
+            buffer = allocate(initialCapacity);
+            end = HEADER_SIZE;
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            OptionalLong latest = storeGenerations().max();
+            if (latest.isPresent()) {
+                generation = latest.getAsLong();
+                Path file = file(generation);
+                buffer = map(file, Files.size(file));
+                if (buffer.capacity() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == FORMAT_VERSION
+                        && buffer.getInt(RECORD_VERSION) == ProductRecord.FORMAT_VERSION) {
+                    end = buffer.getInt(END);
+                    scan();
+                    deleteOlderGenerations();
+                    log.info("Off-heap product store reopened {} with {} products", file, offsets.size());
+                    return;
+                }
+                log.warn("Ignoring product store file {} with an unknown format", file);
+            }
+            generation++;
+            buffer = allocate(initialCapacity);
+            end = HEADER_SIZE;
+            deleteOlderGenerations();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the product store in " + directory, e);
+        }
+    }
+
+    /**
+     * Rebuild the index from the records, the last record of each product wins
+     */
+    private void scan() {
+        int position = HEADER_SIZE;
+        while (position < end) {
+            int length = ProductRecord.length(buffer, position);
+            if (length < ProductRecord.TOMBSTONE_SIZE || position + length > end) {
+                // Torn write: keep what is complete, the reconciliation reloads the rest
+                log.warn("Product store truncated at offset {}", position);
+                end = position;
+                buffer.putInt(END, end);
+                break;
+            }
+            long id = buffer.getLong(position + ProductRecord.ID);
+            int previous = offsets.get(id);
+            if (previous != 0) {
+                garbage += ProductRecord.length(buffer, previous);
+            }
+            if (ProductRecord.isTombstone(buffer, position)) {
+                garbage += length;
+                offsets.remove(id);
+            } else {
+                offsets.addTo(id, position - previous);
+            }
+            position += length;
+        }
+    }
+
+    private int append(byte[] record) {
+        int offset = end;
+        buffer.put(offset, record);
+        end += record.length;
+        // Publish the new end only once the record is complete
+        buffer.putInt(END, end);
+        return offset;
+    }
+
+    private void ensureCapacity(int recordLength) {
+        if ((long) end + recordLength <= buffer.capacity()) {
+            return;
+        }
+        long required = HEADER_SIZE + (end - HEADER_SIZE - garbage) + recordLength;
+        if (required > MAX_CAPACITY) {
+            throw new IllegalStateException("Off-heap product store is full");
+        }
+        // At least half free after the copy, so the next compaction is as far away as this buffer's whole lifetime
+        long capacity = Long.highestOneBit(required * 2 - 1) << 1;
+        compact((int) Math.min(MAX_CAPACITY, Math.max(initialCapacity, capacity)));
+    }
+
+    /**
+     * Copy the live records into a new buffer; the old one is left as is for the views still reading it
+     */
+    private void compact(int capacity) {
+        long nextGeneration = generation + 1;
+        ByteBuffer source = buffer;
+        ByteBuffer target = directory == null ? allocate(capacity) : allocate(nextGeneration, capacity);
+        LongIntHashMap relocated = new LongIntHashMap(offsets.size());
+        int[] position = {HEADER_SIZE};
+        offsets.forEach((id, offset) -> {
+            int length = ProductRecord.length(source, offset);
+            target.put(position[0], source, offset, length);
+            relocated.addTo(id, position[0]);
+            position[0] += length;
+        });
+        target.putInt(END, position[0]);
+
+        buffer = target;
+        offsets = relocated;
+        end = position[0];
+        garbage = 0;
+        generation = nextGeneration;
+        if (directory != null) {
+            deleteOlderGenerations();
+        }
+        log.info("Product store compacted to {} bytes, {} in use", capacity, end);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return directory == null ? header(ByteBuffer.allocateDirect(capacity)) : allocate(generation, capacity);
+    }
+
+    private ByteBuffer allocate(long fileGeneration, int capacity) {
+        try {
+            return header(map(file(fileGeneration), capacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the product store file", e);
+        }
+    }
+
+    private static ByteBuffer header(ByteBuffer buffer) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(END, HEADER_SIZE);
+        buffer.putInt(RECORD_VERSION, ProductRecord.FORMAT_VERSION);
+        return buffer;
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Path file(long fileGeneration) {
+        return directory.resolve(FILE_PREFIX + fileGeneration + FILE_SUFFIX);
+    }
+
+    private LongStream storeGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX))
+                    .map(name -> name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .forEach(number -> generations.add(Long.parseLong(number)));
+        }
+        return generations.stream().mapToLong(Long::longValue);
+    }
+
+    /**
+     * Best effort: a file still mapped by a live view cannot be deleted on every platform, it goes next time
+     */
+    private void deleteOlderGenerations() {
+        try {
+            storeGenerations().filter(fileGeneration -> fileGeneration < generation).forEach(fileGeneration -> {
+                try {
+                    Files.deleteIfExists(file(fileGeneration));
+                } catch (IOException e) {
+                    log.debug("Could not delete product store file {} yet", file(fileGeneration), e);
+                }
+            });
+        } catch (IOException e) {
+            log.debug("Could not list product store files in {}", directory, e);
+        }
+    }
+}
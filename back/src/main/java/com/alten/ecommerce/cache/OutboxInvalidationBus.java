@@ -0,0 +1,124 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.models.CacheInvalidationOutbox;
+import com.alten.ecommerce.repositories.CacheInvalidationOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cluster-wide bus backed by the {@code cache_invalidation_outbox} table in the shared database.
+ * Rows are inserted in the writer's transaction, so only committed changes are ever broadcast. The writing
+ * node applies its own invalidations right after commit; the other nodes poll the table for the rows after the
+ * highest id they have seen. Ids are allocated at insert but become visible at commit, so an id skipped over may
+ * still be committed by a slower transaction: such gaps are looked up again on each poll until they show up, or
+ * for the lookback period, after which the id is taken to be rolled back.
+ * <p>
+ * A row only counts as seen once its listeners ran: when one throws, the row and the rest of the poll are
+ * retried on the next one.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.bus", havingValue = "outbox", matchIfMissing = true)
+public class OutboxInvalidationBus implements InvalidationBus {
+
+    // Bounds the ids waited for after a large jump in the sequence, such as a big rolled back batch
+    private static final int MAX_GAPS = 10_000;
+    // Page size of CacheInvalidationOutboxRepository.findTop500ByIdGreaterThanOrderByIdAsc
+    private static final int POLL_BATCH = 500;
+
+    private final CacheInvalidationOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+    private final Duration lookback;
+    private final Duration retention;
+
+    // Ids below the high-water mark not seen yet -> nanoTime after which they are given up, only touched by the poller
+    private final Map<Long, Long> gaps = new HashMap<>();
+    private long highWaterMark = -1;
+    // False while the mark is not the id of a row, e.g. with every older row purged, so there is nothing to count gaps from
+    private boolean anchored;
+
+    public OutboxInvalidationBus(CacheInvalidationOutboxRepository outboxRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${app.cache.invalidation.node-id:${random.uuid}}") String nodeId,
+                                 @Value("${app.cache.invalidation.lookback:30s}") Duration lookback,
+                                 @Value("${app.cache.invalidation.retention:1h}") Duration retention) {
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = nodeId;
+        this.lookback = lookback;
+        this.retention = retention;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(CacheInvalidationEvent.EntityType entityType, String entityKey) {
+        CacheInvalidationOutbox row = outboxRepository.save(new CacheInvalidationOutbox(null, entityType, entityKey, nodeId, null));
+        InvalidationBus.afterCommit(() -> eventPublisher.publishEvent(
+                new CacheInvalidationEvent(row.getId(), entityType, entityKey, nodeId, true)));
+    }
+
+    /**
+     * Deliver the invalidations committed by other nodes. Read-write so that it always reads the primary.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-interval-ms:500}")
+    @Transactional
+    public synchronized void poll() {
+        long now = System.nanoTime();
+        if (highWaterMark < 0) {
+            // Start behind the rows of the lookback window, which may still be missing from what this node loaded
+            highWaterMark = outboxRepository.findMaxIdCreatedBefore(LocalDateTime.now().minus(lookback));
+            anchored = highWaterMark > 0;
+        }
+
+        if (!gaps.isEmpty()) {
+            gaps.values().removeIf(deadline -> deadline - now < 0);
+            for (CacheInvalidationOutbox row : outboxRepository.findByIdIn(List.copyOf(gaps.keySet()))) {
+                deliver(row);
+                gaps.remove(row.getId());
+            }
+        }
+
+        List<CacheInvalidationOutbox> rows;
+        do {
+            rows = outboxRepository.findTop500ByIdGreaterThanOrderByIdAsc(highWaterMark);
+            for (CacheInvalidationOutbox row : rows) {
+                deliver(row);
+                long deadline = now + lookback.toNanos();
+                for (long id = highWaterMark + 1; anchored && id < row.getId() && gaps.size() < MAX_GAPS; id++) {
+                    gaps.put(id, deadline);
+                }
+                highWaterMark = row.getId();
+                anchored = true;
+            }
+        } while (rows.size() == POLL_BATCH);
+    }
+
+    private void deliver(CacheInvalidationOutbox row) {
+        if (!nodeId.equals(row.getOriginNode())) {
+            eventPublisher.publishEvent(new CacheInvalidationEvent(
+                    row.getId(), row.getEntityType(), row.getEntityKey(), row.getOriginNode(), false));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.purge-interval-ms:600000}")
+    @Transactional
+    public void purge() {
+        int purged = outboxRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.debug("Purged {} cache invalidation outbox rows", purged);
+        }
+    }
+}
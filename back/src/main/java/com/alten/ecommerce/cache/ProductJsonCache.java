@@ -0,0 +1,139 @@
+package com.alten.ecommerce.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Already encoded JSON of the product reads, so a hit skips both the entity to DTO mapping and Jackson.
+ * Entries are filled on first read through {@link ProductReadCoalescer} and evicted on catalog invalidations;
+ * a load that overlaps an invalidation is served but not stored, so a stale encoding never outlives the write.
+ * Category names are matched ignoring case, so category entries are keyed by the lower-cased name.
+ */
+@Component
+public class ProductJsonCache {
+
+    private static final String ALL = "all";
+
+    private final ProductReadCoalescer productReadCoalescer;
+    private final ObjectMapper objectMapper;
+    private final boolean gzip;
+    private final int gzipMinSize;
+
+    private final Map<Long, EncodedJson> byId = new ConcurrentHashMap<>();
+    private final Map<String, EncodedJson> byCategory = new ConcurrentHashMap<>();
+    private final AtomicReference<EncodedJson> all = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductJsonCache(ProductReadCoalescer productReadCoalescer, ObjectMapper objectMapper,
+                            @Value("${app.cache.json.gzip:true}") boolean gzip,
+                            @Value("${app.cache.json.gzip-min-size:1024}") int gzipMinSize) {
+        this.productReadCoalescer = productReadCoalescer;
+        this.objectMapper = objectMapper;
+        this.gzip = gzip;
+        this.gzipMinSize = gzipMinSize;
+    }
+
+    public EncodedJson getProductById(Long id) {
+        EncodedJson cached = byId.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        EncodedJson encoded = encode(() -> productReadCoalescer.getProductById(id));
+        store(loadGeneration, () -> byId.put(id, encoded), () -> byId.remove(id, encoded));
+        return encoded;
+    }
+
+    public EncodedJson getProductsByCategory(String category) {
+        String key = category.toLowerCase(Locale.ROOT);
+        EncodedJson cached = byCategory.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        EncodedJson encoded = encode(() -> productReadCoalescer.getProductsByCategory(category));
+        store(loadGeneration, () -> byCategory.put(key, encoded), () -> byCategory.remove(key, encoded));
+        return encoded;
+    }
+
+    public EncodedJson getAllProducts() {
+        EncodedJson cached = all.get();
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        EncodedJson encoded = encode(productReadCoalescer::getAllProducts);
+        store(loadGeneration, () -> all.set(encoded), () -> all.compareAndSet(encoded, null));
+        return encoded;
+    }
+
+    /**
+     * Runs after {@link ProductReadCoalescer#onInvalidation} so that a load starting once the entry is evicted
+     * cannot join a flight that began before the write
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (!event.entityType().catalog()) {
+            return;
+        }
+        generation.incrementAndGet();
+        switch (event.entityType()) {
+            case PRODUCT -> {
+                byId.remove(Long.valueOf(event.entityKey()));
+                all.set(null);
+            }
+            case CATEGORY -> byCategory.remove(event.entityKey().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void store(long loadGeneration, Runnable put, Runnable undo) {
+        put.run();
+        // An invalidation raced with the load: take back what was just stored rather than keep a possibly stale entry
+        if (generation.get() != loadGeneration) {
+            undo.run();
+        }
+    }
+
+    private EncodedJson encode(Supplier<?> loader) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(loader.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode products", e);
+        }
+        return new EncodedJson(json, gzip && json.length >= gzipMinSize ? gzip(json) : null);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param json     the identity encoded body
+     * @param gzipped  the same body gzip compressed, or null when compression is disabled or not worth it
+     */
+    public record EncodedJson(byte[] json, byte[] gzipped) {}
+}
@@ -0,0 +1,103 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.models.dtos.ProductBatchDTO;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.services.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Single-flight front for the hot product reads. It sits outside the transactional service so that
+ * waiting callers hold neither a transaction nor a pooled connection.
+ * Single products and batches are served from the {@link OffHeapProductStore} when it holds them; the ids of a
+ * batch it does not hold are loaded with one query.
+ */
+@Component
+public class ProductReadCoalescer {
+
+    private static final String ALL = "all";
+
+    private final ProductService productService;
+    private final OffHeapProductStore productStore;
+    private final SingleFlight<Long, ProductDTO> byId;
+    private final SingleFlight<String, List<ProductDTO>> byCategory;
+    private final SingleFlight<String, List<ProductDTO>> all;
+
+    public ProductReadCoalescer(ProductService productService, OffHeapProductStore productStore,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.cache.single-flight.timeout:5s}") Duration timeout) {
+        this.productService = productService;
+        this.productStore = productStore;
+        this.byId = new SingleFlight<>("product", timeout, meterRegistry);
+        this.byCategory = new SingleFlight<>("category", timeout, meterRegistry);
+        this.all = new SingleFlight<>("catalog", timeout, meterRegistry);
+    }
+
+    public ProductDTO getProductById(Long id) {
+        ProductRecord stored = productStore.get(id);
+        if (stored != null) {
+            return stored.toDTO();
+        }
+        return byId.execute(id, () -> productService.getProductById(id));
+    }
+
+    /**
+     * Products in the order of their ids, each id once; ids with no product are reported as missing
+     */
+    public ProductBatchDTO getProductsByIds(List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+
+        Map<Long, ProductDTO> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : requested) {
+            ProductRecord stored = productStore.get(id);
+            if (stored != null) {
+                found.put(id, stored.toDTO());
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            productService.getProductsByIds(misses).forEach(product -> found.put(product.id(), product));
+        }
+
+        List<ProductDTO> products = requested.stream().map(found::get).filter(Objects::nonNull).toList();
+        List<Long> missing = requested.stream().filter(id -> !found.containsKey(id)).toList();
+        return new ProductBatchDTO(products, missing);
+    }
+
+    public List<ProductDTO> getProductsByCategory(String category) {
+        return byCategory.execute(category, () -> productService.getProductsByCategory(category));
+    }
+
+    public List<ProductDTO> getAllProducts() {
+        return all.execute(ALL, productService::getAllProducts);
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onInvalidation(CacheInvalidationEvent event) {
+        switch (event.entityType()) {
+            case PRODUCT -> {
+                Long id = Long.valueOf(event.entityKey());
+                byId.forget(id::equals);
+                all.forget(key -> true);
+            }
+            case CATEGORY -> byCategory.forget(event.entityKey()::equalsIgnoreCase);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of one binary product record in an {@link OffHeapProductStore} buffer. Accessors decode
+ * straight from the buffer, so only the fields actually read are materialized on the heap.
+ * <p>
+ * Records are never overwritten in place (an update appends a new record and compaction copies into a new
+ * buffer), so a view stays consistent for as long as it is held, even after the product changed.
+ */
+public final class ProductRecord {
+
+    /**
+     * Version of the record layout below, kept in the store file header. Bump it with any change to the
+     * layout or to the stored codes, so files written by an older build are rebuilt instead of misread.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    // Record layout, all offsets relative to the start of the record
+    static final int LENGTH = 0;
+    static final int ID = 4;
+    static final int FLAGS = 12;
+    static final int NULLS = 13;
+    static final int PRICE = 15;
+    static final int PRICE_SCALE = 23;
+    static final int RATING = 24;
+    static final int RATING_SCALE = 32;
+    static final int QUANTITY = 33;
+    static final int SHELL_ID = 37;
+    static final int STATUS = 45;
+    static final int CREATED_AT = 46;
+    static final int UPDATED_AT = 54;
+    static final int STRINGS = 62;
+
+    static final int TOMBSTONE_SIZE = NULLS;
+    static final byte TOMBSTONE = 1;
+
+    private static final int NULL_PRICE = 1;
+    private static final int NULL_RATING = 1 << 1;
+    private static final int NULL_QUANTITY = 1 << 2;
+    private static final int NULL_SHELL_ID = 1 << 3;
+    private static final int NULL_STATUS = 1 << 4;
+    private static final int NULL_CREATED_AT = 1 << 5;
+    private static final int NULL_UPDATED_AT = 1 << 6;
+    private static final int NULL_STRING = -1;
+
+    // Variable length UTF-8 fields, in record order
+    private static final int CODE = 0;
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int IMAGE = 3;
+    private static final int CATEGORY = 4;
+    private static final int INTERNAL_REFERENCE = 5;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+
+    ProductRecord(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    public long id() {
+        return buffer.getLong(offset + ID);
+    }
+
+    public BigDecimal price() {
+        return decimal(PRICE, PRICE_SCALE, NULL_PRICE);
+    }
+
+    public BigDecimal rating() {
+        return decimal(RATING, RATING_SCALE, NULL_RATING);
+    }
+
+    public Integer quantity() {
+        return isNull(NULL_QUANTITY) ? null : buffer.getInt(offset + QUANTITY);
+    }
+
+    public Long shellId() {
+        return isNull(NULL_SHELL_ID) ? null : buffer.getLong(offset + SHELL_ID);
+    }
+
+    public InventoryStatus inventoryStatus() {
+        return isNull(NULL_STATUS) ? null : decodeStatus(buffer.get(offset + STATUS));
+    }
+
+    public Long createdAt() {
+        return isNull(NULL_CREATED_AT) ? null : buffer.getLong(offset + CREATED_AT);
+    }
+
+    public Long updatedAt() {
+        return isNull(NULL_UPDATED_AT) ? null : buffer.getLong(offset + UPDATED_AT);
+    }
+
+    public String code() {
+        return string(CODE);
+    }
+
+    public String name() {
+        return string(NAME);
+    }
+
+    public String description() {
+        return string(DESCRIPTION);
+    }
+
+    public String image() {
+        return string(IMAGE);
+    }
+
+    public String category() {
+        return string(CATEGORY);
+    }
+
+    public String internalReference() {
+        return string(INTERNAL_REFERENCE);
+    }
+
+    public ProductDTO toDTO() {
+        return new ProductDTO(id(), code(), name(), description(), image(), category(), price(), quantity(),
+                internalReference(), shellId(), inventoryStatus(), rating(), createdAt(), updatedAt());
+    }
+
+    static int length(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + LENGTH);
+    }
+
+    static boolean isTombstone(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + FLAGS) == TOMBSTONE;
+    }
+
+    /**
+     * Encode a product into its record bytes, ready to be copied into a store buffer
+     */
+    static byte[] encode(ProductDTO product) {
+        byte[][] strings = {
+                utf8(product.code()), utf8(product.name()), utf8(product.description()), utf8(product.image()),
+                utf8(product.category()), utf8(product.internalReference())
+        };
+        int length = STRINGS;
+        for (byte[] string : strings) {
+            length += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        int nulls = 0;
+        record.putInt(LENGTH, length);
+        record.putLong(ID, product.id());
+        nulls |= putDecimal(record, PRICE, PRICE_SCALE, product.price(), NULL_PRICE);
+        nulls |= putDecimal(record, RATING, RATING_SCALE, product.rating(), NULL_RATING);
+        if (product.quantity() == null) {
+            nulls |= NULL_QUANTITY;
+        } else {
+            record.putInt(QUANTITY, product.quantity());
+        }
+        if (product.shellId() == null) {
+            nulls |= NULL_SHELL_ID;
+        } else {
+            record.putLong(SHELL_ID, product.shellId());
+        }
+        if (product.inventoryStatus() == null) {
+            nulls |= NULL_STATUS;
+        } else {
+            record.put(STATUS, encodeStatus(product.inventoryStatus()));
+        }
+        if (product.createdAt() == null) {
+            nulls |= NULL_CREATED_AT;
+        } else {
+            record.putLong(CREATED_AT, product.createdAt());
+        }
+        if (product.updatedAt() == null) {
+            nulls |= NULL_UPDATED_AT;
+        } else {
+            record.putLong(UPDATED_AT, product.updatedAt());
+        }
+        record.putShort(NULLS, (short) nulls);
+
+        record.position(STRINGS);
+        for (byte[] string : strings) {
+            if (string == null) {
+                record.putInt(NULL_STRING);
+            } else {
+                record.putInt(string.length).put(string);
+            }
+        }
+        return record.array();
+    }
+
+    static byte[] tombstone(long id) {
+        ByteBuffer record = ByteBuffer.allocate(TOMBSTONE_SIZE);
+        record.putInt(LENGTH, TOMBSTONE_SIZE);
+        record.putLong(ID, id);
+        record.put(FLAGS, TOMBSTONE);
+        return record.array();
+    }
+
+    // Fixed codes rather than ordinals, so reordering or adding statuses does not change stored records
+    private static byte encodeStatus(InventoryStatus status) {
+        return switch (status) {
+            case INSTOCK -> 1;
+            case LOWSTOCK -> 2;
+            case OUTOFSTOCK -> 3;
+        };
+    }
+
+    private static InventoryStatus decodeStatus(byte code) {
+        return switch (code) {
+            case 1 -> InventoryStatus.INSTOCK;
+            case 2 -> InventoryStatus.LOWSTOCK;
+            case 3 -> InventoryStatus.OUTOFSTOCK;
+            default -> throw new IllegalStateException("Unknown inventory status code " + code);
+        };
+    }
+
+    private boolean isNull(int flag) {
+        return (buffer.getShort(offset + NULLS) & flag) != 0;
+    }
+
+    private BigDecimal decimal(int unscaledOffset, int scaleOffset, int flag) {
+        return isNull(flag) ? null
+                : BigDecimal.valueOf(buffer.getLong(offset + unscaledOffset), buffer.get(offset + scaleOffset));
+    }
+
+    private String string(int field) {
+        int position = offset + STRINGS;
+        for (int i = 0; i < field; i++) {
+            position += Integer.BYTES + Math.max(0, buffer.getInt(position));
+        }
+        int length = buffer.getInt(position);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int putDecimal(ByteBuffer record, int unscaledOffset, int scaleOffset, BigDecimal value, int flag) {
+        if (value == null) {
+            return flag;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        record.putLong(unscaledOffset, unscaled.longValueExact());
+        record.put(scaleOffset, (byte) value.scale());
+        return 0;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.analytics.CompressedBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Committed product bitmap of each user's wishlist, keyed by email. Entries carry the bitmap version stored
+ * with the wishlist, and a put never replaces a newer entry, so two writers committing in one order and
+ * publishing in the other still leave the last committed bitmap. Cached bitmaps are never mutated.
+ * Writes on other nodes arrive as wishlist invalidations and drop the entry, the next read reloads it; a read that
+ * loaded the row before such an invalidation does not cache it.
+ */
+@Component
+public class WishListBitmapCache {
+
+    private final int maxEntries;
+    private final Map<String, Entry> byEmail = new ConcurrentHashMap<>();
+    // Bumped by every remote invalidation, compared by loads to detect one racing with them
+    private final AtomicLong generation = new AtomicLong();
+
+    public WishListBitmapCache(@Value("${app.cache.wishlist.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Entry get(String email) {
+        return byEmail.get(email);
+    }
+
+    /**
+     * To read before loading a row, and hand back to {@link #putLoaded}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a bitmap read from the database, unless an invalidation arrived since {@code loadGeneration}
+     */
+    public void putLoaded(String email, Entry entry, long loadGeneration) {
+        put(email, entry);
+        if (generation.get() != loadGeneration) {
+            byEmail.remove(email, entry);
+        }
+    }
+
+    /**
+     * Cache a bitmap this node just committed
+     */
+    public void put(String email, Entry entry) {
+        byEmail.merge(email, entry, (cached, loaded) -> loaded.version() >= cached.version() ? loaded : cached);
+        if (byEmail.size() > maxEntries) {
+            // No recency tracking: any entry will do, it is reloaded from its row on the next read
+            Iterator<String> emails = byEmail.keySet().iterator();
+            if (emails.hasNext()) {
+                emails.next();
+                emails.remove();
+            }
+        }
+    }
+
+    /**
+     * This node already cached the bitmap it committed, only other nodes' writes evict
+     */
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.entityType() == CacheInvalidationEvent.EntityType.WISHLIST && !event.local()) {
+            generation.incrementAndGet();
+            byEmail.remove(event.entityKey());
+        }
+    }
+
+    public record Entry(Long wishListId, long version, CompressedBitmap bitmap) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.alten.ecommerce.config;
+
+import com.alten.ecommerce.journal.FsyncPolicy;
+import com.alten.ecommerce.journal.MutationJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Mutation journal making the write-behind cart engine's in-memory changes durable between flushes,
+ * enabled with {@code app.journal.enabled=true}
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true")
+public class JournalConfig {
+
+    @Bean(destroyMethod = "close")
+    public MutationJournal mutationJournal(@Value("${app.journal.directory:./data/journal}") Path directory,
+                                           @Value("${app.journal.segment-size:64MB}") DataSize segmentSize,
+                                           @Value("${app.journal.fsync:GROUP}") FsyncPolicy fsyncPolicy,
+                                           @Value("${app.journal.fsync-interval:100ms}") Duration fsyncInterval) {
+        return new MutationJournal(directory, Math.toIntExact(segmentSize.toBytes()), fsyncPolicy, fsyncInterval);
+    }
+}
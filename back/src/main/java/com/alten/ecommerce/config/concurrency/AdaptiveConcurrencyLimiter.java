@@ -0,0 +1,82 @@
+package com.alten.ecommerce.config.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit: each request finishing under the latency threshold while the limit is in use
+ * adds one slot, and a slow request multiplies the limit by the backoff ratio. Only requests started after the
+ * last decrease can decrease it again, so a burst of slow requests admitted under the old limit backs off once
+ * per round trip rather than once each. Requests over the limit are rejected immediately instead of queueing on
+ * a Tomcat thread.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+
+    private volatile double limit;
+    // Guarded by this
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, ConcurrencyLimitProperties.Group settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.backoffRatio = settings.getBackoffRatio();
+        this.limit = settings.getInitialLimit();
+        this.lastDecreaseNanos = System.nanoTime();
+        this.rejected = meterRegistry.counter("http.concurrency_limit.rejected", "group", name);
+        meterRegistry.gauge("http.concurrency_limit.limit", Tags.of("group", name), this, AdaptiveConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("http.concurrency_limit.in_flight", Tags.of("group", name), inFlight);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return true when a slot was taken, which must then be given back with {@link #release(long)}
+     */
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(long latencyNanos) {
+        release(latencyNanos, System.nanoTime());
+    }
+
+    void release(long latencyNanos, long nowNanos) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (latencyNanos > latencyThresholdNanos) {
+                long startNanos = nowNanos - latencyNanos;
+                if (startNanos - lastDecreaseNanos >= 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = nowNanos;
+                }
+            } else if (current * 2 >= limit) {
+                // Only grow while the limit is actually being used, otherwise it drifts up unbounded
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+}
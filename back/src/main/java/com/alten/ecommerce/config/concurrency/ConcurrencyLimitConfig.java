@@ -0,0 +1,52 @@
+package com.alten.ecommerce.config.concurrency;
+
+import com.alten.ecommerce.controllers.CartController;
+import com.alten.ecommerce.controllers.ProductController;
+import com.alten.ecommerce.controllers.UserController;
+import com.alten.ecommerce.controllers.WishListController;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Map;
+
+/**
+ * Separate adaptive limits for catalog reads, cart/wishlist writes and authentication,
+ * so a slow database on one path cannot take the thread pool from the others
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public ConcurrencyLimitConfig(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        AdaptiveConcurrencyLimiter catalog = limiter("catalog");
+        AdaptiveConcurrencyLimiter cart = limiter("cart");
+        AdaptiveConcurrencyLimiter auth = limiter("auth");
+
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(Map.of(
+                ProductController.class, catalog,
+                CartController.class, cart,
+                WishListController.class, cart,
+                UserController.class, auth
+        )));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(String group) {
+        ConcurrencyLimitProperties.Group settings = properties.getGroups()
+                .getOrDefault(group, new ConcurrencyLimitProperties.Group());
+        return new AdaptiveConcurrencyLimiter(group, settings, meterRegistry);
+    }
+}
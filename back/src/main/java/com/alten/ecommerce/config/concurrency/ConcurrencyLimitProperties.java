@@ -0,0 +1,35 @@
+package com.alten.ecommerce.config.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Settings per endpoint group: catalog, cart and auth
+     */
+    private Map<String, Group> groups = new HashMap<>();
+
+    @Data
+    public static class Group {
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        /**
+         * Requests slower than this count as congestion and shrink the limit
+         */
+        private Duration latencyThreshold = Duration.ofMillis(500);
+        /**
+         * Multiplicative decrease applied on congestion
+         */
+        private double backoffRatio = 0.9;
+    }
+}
@@ -0,0 +1,51 @@
+package com.alten.ecommerce.config.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to a healthy replica and everything else to the primary.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so the connection is only fetched once the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaPool replicaPool;
+    private final ReplicationLagStickiness stickiness;
+
+    public ReadWriteRoutingDataSource(ReplicaPool replicaPool, ReplicationLagStickiness stickiness) {
+        this.replicaPool = replicaPool;
+        this.stickiness = stickiness;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Any read-write transaction counts as a write, which errs on the side of consistency
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                stickiness.recordWrite(user);
+            }
+            return PRIMARY;
+        }
+
+        if (stickiness.isSticky(user)) {
+            return PRIMARY;
+        }
+        return replicaPool.next().orElse(PRIMARY);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,40 @@
+package com.alten.ecommerce.config.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class ReadWriteRoutingProperties {
+
+    /**
+     * Route read-only transactions to the replicas below
+     */
+    private boolean enabled;
+
+    /**
+     * Read replicas, used round-robin while healthy
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * How long a user's reads stay on the primary after one of their writes (upper bound of the replication lag)
+     */
+    private Duration stickiness = Duration.ofSeconds(5);
+
+    /**
+     * Timeout for the replica connection validity check
+     */
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,83 @@
+package com.alten.ecommerce.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read replicas with round-robin selection. Replicas failing their health check are
+ * taken out of rotation until they answer again.
+ */
+@Slf4j
+public class ReplicaPool implements DisposableBean {
+
+    private final Map<String, DataSource> replicas;
+    private final int healthCheckTimeoutSeconds;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private volatile List<String> healthy;
+
+    public ReplicaPool(Map<String, DataSource> replicas, int healthCheckTimeoutSeconds) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+        this.healthy = List.copyOf(this.replicas.keySet());
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Next healthy replica key, or empty when every replica is down
+     */
+    public Optional<String> next() {
+        List<String> candidates = healthy;
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(candidates.get(Math.floorMod(cursor.getAndIncrement(), candidates.size())));
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.health-check-interval-ms:10000}")
+    public void checkHealth() {
+        List<String> up = new ArrayList<>();
+        replicas.forEach((key, dataSource) -> {
+            if (isValid(dataSource)) {
+                up.add(key);
+            } else if (healthy.contains(key)) {
+                log.warn("Replica {} failed its health check, removing it from rotation", key);
+            }
+        });
+        up.stream()
+                .filter(key -> !healthy.contains(key))
+                .forEach(key -> log.info("Replica {} is healthy again, adding it back to rotation", key));
+        healthy = List.copyOf(up);
+    }
+
+    private boolean isValid(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(healthCheckTimeoutSeconds);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.values().forEach(dataSource -> {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        });
+    }
+}
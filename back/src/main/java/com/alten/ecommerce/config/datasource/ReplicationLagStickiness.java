@@ -0,0 +1,48 @@
+package com.alten.ecommerce.config.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users wrote recently so their reads stay on the primary until the
+ * replicas have caught up, giving read-your-own-writes consistency (e.g. right after /api/carts/add).
+ */
+public class ReplicationLagStickiness {
+
+    private final long windowNanos;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReplicationLagStickiness(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    public void recordWrite(String user) {
+        if (user != null && windowNanos > 0) {
+            lastWrites.put(user, System.nanoTime());
+        }
+    }
+
+    public boolean isSticky(String user) {
+        if (user == null) {
+            return false;
+        }
+        Long writtenAt = lastWrites.get(user);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt < windowNanos) {
+            return true;
+        }
+        lastWrites.remove(user, writtenAt);
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.stickiness-eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        lastWrites.entrySet().removeIf(entry -> now - entry.getValue() >= windowNanos);
+    }
+}
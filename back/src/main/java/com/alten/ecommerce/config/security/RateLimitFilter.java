@@ -0,0 +1,163 @@
+package com.alten.ecommerce.config.security;
+
+import com.alten.ecommerce.models.dtos.ApiErrorResponse;
+import com.alten.ecommerce.ratelimit.TokenBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Per-client throttling placed right after {@link JwtAuthenticationFilter}: authenticated requests are keyed
+ * by user, anonymous ones (e.g. /token) by client IP. Rejections get a 429 with a Retry-After header.
+ * The client IP is the one resolved from X-Forwarded-For by the container for requests from trusted proxies
+ * ({@code server.forward-headers-strategy}), so clients behind the load balancer do not share its bucket.
+ * <p>
+ * Only the token bucket itself is allocation free: each request still parses its path to match a policy,
+ * builds its bucket key and, for a new client, creates a bucket.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final List<CompiledPolicy> policies;
+    private final int maxBuckets;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.maxBuckets = properties.getMaxBuckets();
+        this.objectMapper = objectMapper;
+        this.policies = !properties.isEnabled() ? List.of() : properties.getPolicies().stream()
+                .map(policy -> new CompiledPolicy(policy, meterRegistry))
+                .toList();
+        meterRegistry.gaugeMapSize("http.rate_limit.buckets", Tags.empty(), buckets);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompiledPolicy policy = match(request);
+        if (policy == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        String key = policy.name + ':' + clientKey(request);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                evictOne();
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(policy.capacity, policy.refillPeriodNanos, now));
+        }
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        policy.rejected.increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiErrorResponse(
+                "Too many requests, retry in " + retryAfterSeconds + "s",
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                request.getRequestURI(),
+                null
+        ));
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * Make room for a new client by dropping an arbitrary bucket rather than growing without bound. Idle ones
+     * are left to {@link #evictIdle}, so a request never scans the whole map
+     */
+    private void evictOne() {
+        Iterator<TokenBucket> iterator = buckets.values().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private CompiledPolicy match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (CompiledPolicy policy : policies) {
+            if (policy.matches(request.getMethod(), path)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static final class CompiledPolicy {
+        private final String name;
+        private final List<PathPattern> paths;
+        private final Set<String> methods;
+        private final int capacity;
+        private final long refillPeriodNanos;
+        private final Counter rejected;
+
+        private CompiledPolicy(RateLimitProperties.Policy policy, MeterRegistry meterRegistry) {
+            this.name = policy.getName();
+            this.paths = policy.getPaths().stream().map(PathPatternParser.defaultInstance::parse).toList();
+            this.methods = policy.getMethods().stream().map(String::toUpperCase).collect(Collectors.toSet());
+            this.capacity = policy.getCapacity();
+            this.refillPeriodNanos = policy.getRefillPeriod().toNanos();
+            this.rejected = meterRegistry.counter("http.rate_limit.rejected", "policy", name);
+        }
+
+        private boolean matches(String method, PathContainer path) {
+            if (!methods.isEmpty() && !methods.contains(method)) {
+                return false;
+            }
+            for (PathPattern pattern : paths) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
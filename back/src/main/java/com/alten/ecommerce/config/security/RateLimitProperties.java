@@ -0,0 +1,47 @@
+package com.alten.ecommerce.config.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Upper bound on tracked clients; when it is reached a new client replaces an arbitrary one, idle buckets
+     * being evicted on a schedule
+     */
+    private int maxBuckets = 100_000;
+
+    /**
+     * Route policies, the first one matching the request applies
+     */
+    private List<Policy> policies = new ArrayList<>();
+
+    @Data
+    public static class Policy {
+        private String name;
+        /**
+         * Path patterns, e.g. /api/carts/**
+         */
+        private List<String> paths = new ArrayList<>();
+        /**
+         * HTTP methods the policy applies to, all when empty
+         */
+        private List<String> methods = new ArrayList<>();
+        /**
+         * Burst size: requests allowed at once from a full bucket
+         */
+        private int capacity;
+        /**
+         * Time to refill the whole bucket
+         */
+        private Duration refillPeriod;
+    }
+}
@@ -3,6 +3,7 @@ package com.alten.ecommerce.controllers;
 import com.alten.ecommerce.config.security.JwtUtil;
 import com.alten.ecommerce.models.dtos.CartDTO;
 import com.alten.ecommerce.models.dtos.CartItemDTO;
+import com.alten.ecommerce.models.dtos.CartRevalidationDTO;
 import com.alten.ecommerce.services.CartService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -51,4 +52,16 @@ public class CartController {
         CartDTO cart = cartService.getCart(currentUserEmail);
         return ResponseEntity.ok(cart);
     }
+
+    @GetMapping("/revalidate")
+    @Operation(summary = "Check cart against current prices and stock",
+            description = "Authenticated users only. Flags lines whose price changed or that are out of stock, with cart totals")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Cart checked"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<CartRevalidationDTO> revalidateCart() {
+        String currentUserEmail = JwtUtil.getCurrentUserEmail();
+        return ResponseEntity.ok(cartService.revalidateCart(currentUserEmail));
+    }
 }
@@ -0,0 +1,93 @@
+package com.alten.ecommerce.controllers;
+
+import com.alten.ecommerce.models.dtos.CatalogManifestDTO;
+import com.alten.ecommerce.services.CatalogSnapshotService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/catalog")
+@Tag(name = "Catalog snapshot", description = "Whole catalog as a versioned static file")
+public class CatalogSnapshotController {
+
+    private static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    public CatalogSnapshotController(CatalogSnapshotService catalogSnapshotService) {
+        this.catalogSnapshotService = catalogSnapshotService;
+    }
+
+    @GetMapping("/manifest")
+    @Operation(summary = "Get the catalog manifest", description = "Version and URL of the current catalog snapshot, revalidate with If-None-Match")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Current manifest"),
+            @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "503", description = "No snapshot written yet")
+    })
+    public ResponseEntity<CatalogManifestDTO> getManifest(WebRequest request) {
+        CatalogManifestDTO manifest = catalogSnapshotService.getManifest()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Catalog snapshot not ready"));
+        if (request.checkNotModified("\"" + manifest.version() + "\"")) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(manifest);
+    }
+
+    @GetMapping("/snapshots/{version}.json")
+    @Operation(summary = "Get a catalog snapshot", description = "Full product listing of one catalog version, gzip encoded when accepted")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Catalog content"),
+            @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired version")
+    })
+    public void getSnapshot(@PathVariable String version, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        boolean gzip = FileTransfer.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        Optional<Path> gzipped = gzip ? catalogSnapshotService.resolve(version, true) : Optional.empty();
+        Path path = gzipped.or(() -> catalogSnapshotService.resolve(version, false))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Catalog snapshot not found: " + version));
+
+        // Each encoding is a different representation and needs its own validator
+        String etag = "\"" + version + (gzipped.isPresent() ? "-gzip" : "") + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_FOREVER);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(etag))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long length = Files.size(path);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (gzipped.isPresent()) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLengthLong(length);
+        FileTransfer.send(request, response, path, 0, length - 1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.alten.ecommerce.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helpers for responses whose body is prepared ahead of time: zero-copy file transfer
+ * (Tomcat's sendfile when the connector supports it, otherwise {@link FileChannel#transferTo})
+ * and picking a stored content encoding.
+ */
+final class FileTransfer {
+
+    // Tomcat request attributes asking the connector to send the file with sendfile once the request completes
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileTransfer() {
+    }
+
+    /**
+     * Send the inclusive byte range {@code start..end} of a file, headers must be set beforehand
+     */
+    static void send(HttpServletRequest request, HttpServletResponse response, Path path, long start, long end)
+            throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long transferred = file.transferTo(position, end + 1 - position, out);
+                // Nothing left to read: the file was truncated or replaced after the range was computed
+                if (transferred == 0) {
+                    throw new EOFException("File " + path + " ended at byte " + position + " of " + (end + 1));
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * True when the Accept-Encoding header allows gzip
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
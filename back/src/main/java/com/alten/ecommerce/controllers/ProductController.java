@@ -1,18 +1,51 @@
 package com.alten.ecommerce.controllers;
 
+import com.alten.ecommerce.analytics.ColumnarCatalogIndex;
+import com.alten.ecommerce.cache.ProductJsonCache;
+import com.alten.ecommerce.cache.ProductReadCoalescer;
+import com.alten.ecommerce.config.BinaryContentNegotiationConfig;
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.TrendingWindow;
+import com.alten.ecommerce.models.dtos.CatalogQueryDTO;
+import com.alten.ecommerce.models.dtos.CatalogTotalsDTO;
+import com.alten.ecommerce.models.dtos.FacetCountsDTO;
+import com.alten.ecommerce.models.dtos.FacetFilterDTO;
+import com.alten.ecommerce.models.dtos.ProductBatchDTO;
 import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.dtos.RecommendedProductDTO;
+import com.alten.ecommerce.models.dtos.StoredImageDTO;
+import com.alten.ecommerce.models.dtos.TrendingProductDTO;
+import com.alten.ecommerce.services.CatalogFacetService;
+import com.alten.ecommerce.services.CatalogQueryService;
+import com.alten.ecommerce.services.ImageStorageService;
 import com.alten.ecommerce.services.ProductService;
+import com.alten.ecommerce.services.ProductStatsService;
+import com.alten.ecommerce.services.RecommendationService;
+import com.alten.ecommerce.services.TrendingService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/products")
@@ -22,31 +55,131 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productServiceImpl;
+    private final CatalogFacetService catalogFacetService;
+    private final ProductReadCoalescer productReadCoalescer;
+    private final ImageStorageService imageStorageService;
+    private final ProductJsonCache productJsonCache;
+    private final ProductStatsService productStatsService;
+    private final TrendingService trendingService;
+    private final RecommendationService recommendationService;
+    private final CatalogQueryService catalogQueryService;
+    private final int maxBatchSize;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, CatalogFacetService catalogFacetService,
+                             ProductReadCoalescer productReadCoalescer, ImageStorageService imageStorageService,
+                             ProductJsonCache productJsonCache, ProductStatsService productStatsService,
+                             TrendingService trendingService, RecommendationService recommendationService,
+                             CatalogQueryService catalogQueryService,
+                             @Value("${app.products.batch.max-ids:200}") int maxBatchSize) {
         this.productServiceImpl = productService;
+        this.catalogFacetService = catalogFacetService;
+        this.productReadCoalescer = productReadCoalescer;
+        this.imageStorageService = imageStorageService;
+        this.productJsonCache = productJsonCache;
+        this.productStatsService = productStatsService;
+        this.trendingService = trendingService;
+        this.recommendationService = recommendationService;
+        this.catalogQueryService = catalogQueryService;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieves a list of all products")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list of products",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = ProductDTO.class)))),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<byte[]> getAllProducts(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return encodedJson(productJsonCache.getAllProducts(), acceptEncoding);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_CBOR_VALUE, BinaryContentNegotiationConfig.APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Get all products (binary)", description = "Same listing for the binary representations (CBOR, Smile)")
+    public List<ProductDTO> getAllProductsBinary() {
+        return productReadCoalescer.getAllProducts();
+    }
+
+    @GetMapping(params = {"sort", "!fields"})
+    @Operation(summary = "Get all products sorted", description = "Retrieves all products in the given order, only sort=popularity (views and add-to-cart counts) is supported")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of products"),
+            @ApiResponse(responseCode = "400", description = "Unsupported sort"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public List<ProductDTO> getAllProducts() {
-        return productServiceImpl.getAllProducts();
+    public List<ProductDTO> getAllProductsSorted(@RequestParam String sort) {
+        if (!"popularity".equals(sort)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sort);
+        }
+        return productStatsService.getProductsByPopularity();
+    }
+
+    @GetMapping(params = {"sort", "fields"})
+    @Operation(summary = "Get all products sorted with selected fields", description = "Not supported: the popularity order is only available on full products")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "400", description = "sort and fields cannot be combined")
+    })
+    public List<Map<String, Object>> getAllProductFieldsSorted() {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort and fields cannot be combined");
+    }
+
+    @GetMapping(params = {"fields", "!sort"})
+    @Operation(summary = "Get all products with selected fields", description = "Sparse fieldset listing, e.g. ?fields=name,price,image,rating; only those columns are queried and returned (id is always included)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list of products"),
+            @ApiResponse(responseCode = "400", description = "Unknown field"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public List<Map<String, Object>> getAllProductFields(@RequestParam String fields) {
+        return productServiceImpl.getProductFields(fields, null);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Retrieves a product by its ID")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved product"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved product",
+                    content = @Content(schema = @Schema(implementation = ProductDTO.class))),
             @ApiResponse(responseCode = "404", description = "Product not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ProductDTO getProductById(@PathVariable Long id) {
-        return productServiceImpl.getProductById(id);
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long id,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ResponseEntity<byte[]> product = encodedJson(productJsonCache.getProductById(id), acceptEncoding);
+        productStatsService.recordView(id);
+        return product;
+    }
+
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_CBOR_VALUE, BinaryContentNegotiationConfig.APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Get product by ID (binary)", description = "Same product for the binary representations (CBOR, Smile)")
+    public ProductDTO getProductByIdBinary(@PathVariable Long id) {
+        ProductDTO product = productReadCoalescer.getProductById(id);
+        productStatsService.recordView(id);
+        return product;
+    }
+
+    @GetMapping("/batch")
+    @Operation(summary = "Get products by IDs", description = "Retrieves several products at once, e.g. ?ids=3,1,2, in the requested order; IDs with no product are listed under missing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
+                    content = @Content(schema = @Schema(implementation = ProductBatchDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Too many IDs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ProductBatchDTO getProductsByIds(@RequestParam List<Long> ids) {
+        return getBatch(ids);
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Get products by IDs (POST)", description = "Same as GET /batch with the IDs as a JSON array body, for lists too long for a URL")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
+                    content = @Content(schema = @Schema(implementation = ProductBatchDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Too many IDs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ProductBatchDTO getProductsByIdsPost(@RequestBody List<Long> ids) {
+        return getBatch(ids);
     }
 
     @PostMapping
@@ -89,15 +222,147 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping(value = "/{id}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload a product image", description = "Stores the image with pre-generated thumbnails and sets it as the product image (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Image stored, returns its URL and thumbnail URLs"),
+            @ApiResponse(responseCode = "400", description = "Unreadable image"),
+            @ApiResponse(responseCode = "403", description = "Forbidden: Requires admin access"),
+            @ApiResponse(responseCode = "404", description = "Product not found"),
+            @ApiResponse(responseCode = "413", description = "Image has too many pixels"),
+            @ApiResponse(responseCode = "415", description = "Unsupported image format"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public StoredImageDTO uploadProductImage(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+        // Checked first so an upload for an unknown product stores nothing
+        if (!productServiceImpl.productExists(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("Product with ID %d not found", id));
+        }
+        StoredImageDTO image = imageStorageService.store(file);
+        productServiceImpl.updateProductImage(id, image.url());
+        return image;
+    }
+
     @GetMapping("/category/{categoryName}")
     @Operation(summary = "Get products by category", description = "Retrieves products by category name")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved products"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = ProductDTO.class)))),
             @ApiResponse(responseCode = "404", description = "Category not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public List<ProductDTO> getProductsByCategory(@PathVariable String categoryName) {
-        return productServiceImpl.getProductsByCategory(categoryName);
+    public ResponseEntity<byte[]> getProductsByCategory(@PathVariable String categoryName,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return encodedJson(productJsonCache.getProductsByCategory(categoryName), acceptEncoding);
+    }
+
+    @GetMapping(value = "/category/{categoryName}", produces = {MediaType.APPLICATION_CBOR_VALUE, BinaryContentNegotiationConfig.APPLICATION_SMILE_VALUE})
+    @Operation(summary = "Get products by category (binary)", description = "Same listing for the binary representations (CBOR, Smile)")
+    public List<ProductDTO> getProductsByCategoryBinary(@PathVariable String categoryName) {
+        return productReadCoalescer.getProductsByCategory(categoryName);
+    }
+
+    @GetMapping(value = "/category/{categoryName}", params = "fields")
+    @Operation(summary = "Get products by category with selected fields", description = "Sparse fieldset variant of the category listing, see ?fields= on the product listing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products"),
+            @ApiResponse(responseCode = "400", description = "Unknown field or category not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public List<Map<String, Object>> getProductFieldsByCategory(@PathVariable String categoryName, @RequestParam String fields) {
+        return productServiceImpl.getProductFields(fields, categoryName);
+    }
+
+    @GetMapping("/trending")
+    @Operation(summary = "Get trending products", description = "Most added to carts and wishlists over the last hour (window=HOUR) or day (window=DAY)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved trending products"),
+            @ApiResponse(responseCode = "400", description = "Invalid window or limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public List<TrendingProductDTO> getTrendingProducts(@RequestParam(defaultValue = "HOUR") TrendingWindow window,
+                                                        @RequestParam(defaultValue = "10") int limit) {
+        return trendingService.getTrending(window, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    @Operation(summary = "Get product recommendations", description = "Products most often found in the same carts and wishlists as this one")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved recommendations"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public List<RecommendedProductDTO> getRecommendations(@PathVariable Long id, @RequestParam(defaultValue = "10") int limit) {
+        return recommendationService.getRecommendations(id, limit);
+    }
+
+    @GetMapping("/query")
+    @Operation(summary = "Query products", description = "Filters by category, inventory status, price, rating and quantity, then sorts by PRICE, RATING or QUANTITY and returns the top results")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products"),
+            @ApiResponse(responseCode = "400", description = "Invalid parameters, or a direction without a sort"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public List<ProductDTO> queryProducts(@RequestParam(required = false) String category,
+                                          @RequestParam(required = false) InventoryStatus inventoryStatus,
+                                          @RequestParam(required = false) BigDecimal minPrice,
+                                          @RequestParam(required = false) BigDecimal maxPrice,
+                                          @RequestParam(required = false) BigDecimal minRating,
+                                          @RequestParam(required = false) Integer minQuantity,
+                                          @RequestParam(required = false) ColumnarCatalogIndex.SortKey sort,
+                                          @RequestParam(required = false) Sort.Direction direction,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        return catalogQueryService.query(new CatalogQueryDTO(category, inventoryStatus, minPrice, maxPrice, minRating,
+                minQuantity, sort, direction, limit));
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Get catalog facets", description = "Counts products per category, inventory status, price bucket and rating band for the given filters")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved facet counts"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public FacetCountsDTO getFacets(@RequestParam(required = false) String category,
+                                    @RequestParam(required = false) InventoryStatus inventoryStatus,
+                                    @RequestParam(required = false) BigDecimal minPrice,
+                                    @RequestParam(required = false) BigDecimal maxPrice,
+                                    @RequestParam(required = false) BigDecimal minRating) {
+        return catalogFacetService.getFacets(new FacetFilterDTO(category, inventoryStatus, minPrice, maxPrice, minRating));
+    }
+
+    @GetMapping("/facets/totals")
+    @Operation(summary = "Get catalog totals", description = "Product count, stock units and inventory value (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved catalog totals"),
+            @ApiResponse(responseCode = "403", description = "Forbidden: Requires admin access"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public CatalogTotalsDTO getCatalogTotals() {
+        return catalogFacetService.getTotals();
+    }
+
+    /**
+     * The batch cap applies to distinct ids, repeated ones are only returned once
+     */
+    private ProductBatchDTO getBatch(List<Long> ids) {
+        if (ids.stream().filter(Objects::nonNull).distinct().count() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("At most %d product ids per request", maxBatchSize));
+        }
+        return productReadCoalescer.getProductsByIds(ids);
+    }
+
+    /**
+     * Write pre-encoded JSON as is, gzip compressed when the client accepts it
+     */
+    private ResponseEntity<byte[]> encodedJson(ProductJsonCache.EncodedJson body, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (body.gzipped() != null && FileTransfer.acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzipped());
+        }
+        return response.body(body.json());
     }
 
 }
@@ -10,6 +10,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/wishlists")
 public class WishListController {
@@ -51,6 +53,17 @@ public class WishListController {
         return ResponseEntity.ok(wishList);
     }
 
+    @GetMapping("/contains")
+    @Operation(summary = "Flag wishlisted products", description = "Returns the given product ids that are in the user's wishlist, for product listings")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Wishlisted product ids"),
+            @ApiResponse(responseCode = "400", description = "Negative product id"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public List<Long> getWishListedProducts(@RequestParam List<Long> productIds, Authentication authentication) {
+        return wishListService.findWishListed(authentication.getName(), productIds);
+    }
+
     @DeleteMapping("/{itemId}")
     @Operation(summary = "Remove item from wishlist", description = "Authenticated users only")
     @ApiResponses({
@@ -0,0 +1,9 @@
+package com.alten.ecommerce.events;
+
+import java.util.List;
+
+/**
+ * Published by the cart sweeper after each committed batch, with the ids of the carts it deleted
+ */
+public record CartsSweptEvent(List<Long> cartIds) {
+}
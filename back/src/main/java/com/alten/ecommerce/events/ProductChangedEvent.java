@@ -0,0 +1,35 @@
+package com.alten.ecommerce.events;
+
+import com.alten.ecommerce.models.dtos.ProductDTO;
+
+/**
+ * Published by the product service whenever the catalog is written. Listeners that keep
+ * derived catalog state should use {@code @TransactionalEventListener} so they only see committed changes.
+ *
+ * @param before the product before the change, null on creation
+ * @param after  the product after the change, null on deletion
+ */
+public record ProductChangedEvent(
+        Type type,
+        Long productId,
+        ProductDTO before,
+        ProductDTO after
+) {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static ProductChangedEvent created(ProductDTO product) {
+        return new ProductChangedEvent(Type.CREATED, product.id(), null, product);
+    }
+
+    public static ProductChangedEvent updated(ProductDTO before, ProductDTO after) {
+        return new ProductChangedEvent(Type.UPDATED, after.id(), before, after);
+    }
+
+    public static ProductChangedEvent deleted(ProductDTO before) {
+        return new ProductChangedEvent(Type.DELETED, before.id(), before, null);
+    }
+}
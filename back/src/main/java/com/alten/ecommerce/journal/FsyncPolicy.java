@@ -0,0 +1,19 @@
+package com.alten.ecommerce.journal;
+
+/**
+ * When appended journal records are forced to disk
+ */
+public enum FsyncPolicy {
+    /**
+     * Never explicitly: records survive a crash of the process but not of the machine
+     */
+    NONE,
+    /**
+     * From a background thread at a fixed interval, a machine crash loses at most one interval
+     */
+    INTERVAL,
+    /**
+     * Before the append returns, appends arriving while a force runs share the next one (group commit)
+     */
+    GROUP
+}
@@ -0,0 +1,40 @@
+package com.alten.ecommerce.journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One basket mutation. Records carry the resulting state rather than a delta, so replaying a record that
+ * already reached the database changes nothing.
+ *
+ * @param basketId  the cart id
+ * @param productId the product of the changed line
+ * @param quantity  the line's quantity after the change, 0 when the line was removed
+ */
+public record JournalRecord(
+        Type type,
+        long basketId,
+        long productId,
+        int quantity
+) {
+    static final int SIZE = 1 + Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    public enum Type {
+        CART_ITEM
+    }
+
+    public static JournalRecord cartItem(long cartId, long productId, int quantity) {
+        return new JournalRecord(Type.CART_ITEM, cartId, productId, quantity);
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal()).putLong(basketId).putLong(productId).putInt(quantity);
+    }
+
+    static JournalRecord readFrom(ByteBuffer buffer, int offset) {
+        return new JournalRecord(
+                Type.values()[buffer.get(offset)],
+                buffer.getLong(offset + 1),
+                buffer.getLong(offset + 1 + Long.BYTES),
+                buffer.getInt(offset + 1 + 2 * Long.BYTES));
+    }
+}
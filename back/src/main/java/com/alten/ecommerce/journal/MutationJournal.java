@@ -0,0 +1,366 @@
+package com.alten.ecommerce.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of basket mutations in pre-sized, memory-mapped segment files.
+ * <p>
+ * A record is framed as payload length, CRC32C of sequence and payload, sequence, then the payload. Segments are
+ * zero filled, so a zero length marks the end of a segment, and a frame whose checksum or sequence does not match is
+ * a torn write: recovery stops there and the next append overwrites it. When a frame does not fit, the journal
+ * rolls to a new segment named after its first sequence.
+ * <p>
+ * Durability follows the {@link FsyncPolicy}. {@link #checkpoint} records that everything up to a sequence reached
+ * the database and deletes the segments it covers, so the journal only holds what still needs replaying.
+ * <p>
+ * Rolled over and replayed segments are unmapped by the garbage collector once nothing references them. Until then
+ * a segment cannot be deleted on Windows; a failed delete is retried by the next checkpoint.
+ */
+@Slf4j
+public class MutationJournal implements Closeable {
+
+    private static final int MAGIC = 0x4A524E4C;
+    private static final int FORMAT_VERSION = 1;
+    // Segment header: magic, format version, first sequence
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    // Frame header: payload length, checksum, sequence
+    private static final int FRAME_HEADER_SIZE = 16;
+    private static final int FRAME_SIZE = FRAME_HEADER_SIZE + JournalRecord.SIZE;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService intervalSync;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final AtomicLong durableSequence = new AtomicLong();
+    private Segment current;
+    private long lastSequence;
+    private volatile long checkpoint;
+
+    public MutationJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        if (segmentSize < SEGMENT_HEADER_SIZE + FRAME_SIZE) {
+            throw new IllegalArgumentException("Journal segments must hold at least one record");
+        }
+        this.directory = directory.toAbsolutePath().normalize();
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        open();
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            intervalSync = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = Math.max(1, fsyncInterval.toMillis());
+            intervalSync.scheduleWithFixedDelay(this::forceNow, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            intervalSync = null;
+        }
+    }
+
+    /**
+     * Write a record to the current segment. It is durable once {@link #sync} returns for its sequence.
+     * @return the record's sequence
+     */
+    public long append(JournalRecord record) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        frame.putInt(JournalRecord.SIZE).putInt(0).putLong(0);
+        record.writeTo(frame);
+
+        appendLock.lock();
+        try {
+            if (current.position + FRAME_SIZE > segmentSize) {
+                roll();
+            }
+            long sequence = ++lastSequence;
+            frame.putLong(8, sequence);
+            frame.putInt(4, checksum(frame, 0));
+            current.buffer.put(current.position, frame.array());
+            current.position += FRAME_SIZE;
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the record with this sequence is on disk, a no-op unless the policy is {@link FsyncPolicy#GROUP}.
+     * Callers queue on one lock: whoever gets it forces everything appended so far, so the callers behind it
+     * usually find their record already durable.
+     */
+    public void sync(long sequence) {
+        if (fsyncPolicy != FsyncPolicy.GROUP || durableSequence.get() >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableSequence.get() < sequence) {
+                force();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        appendLock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Pass every record after the last checkpoint to the consumer, in sequence order
+     */
+    public void replay(BiConsumer<Long, JournalRecord> consumer) {
+        long from = checkpoint;
+        for (Segment segment : segments()) {
+            try {
+                MappedByteBuffer buffer = map(segment.path, Files.size(segment.path), FileChannel.MapMode.READ_ONLY);
+                scan(buffer, segment.firstSequence, (sequence, offset) -> {
+                    if (sequence > from) {
+                        consumer.accept(sequence, JournalRecord.readFrom(buffer, offset + FRAME_HEADER_SIZE));
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read journal segment " + segment.path, e);
+            }
+        }
+    }
+
+    /**
+     * Record that every mutation up to this sequence is in the database, and delete the segments that only
+     * hold such records
+     */
+    public synchronized void checkpoint(long sequence) {
+        if (sequence <= checkpoint) {
+            return;
+        }
+        try {
+            Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            Files.writeString(temp, Long.toString(sequence), StandardCharsets.US_ASCII);
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the journal checkpoint", e);
+        }
+        checkpoint = sequence;
+
+        List<Segment> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            // A segment ends where the next one starts
+            if (segments.get(i + 1).firstSequence - 1 > sequence) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segments.get(i).path);
+            } catch (IOException e) {
+                log.debug("Could not delete journal segment {} yet", segments.get(i).path, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (intervalSync != null) {
+            intervalSync.shutdown();
+        }
+        forceNow();
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+            if (Files.exists(checkpointFile)) {
+                checkpoint = Long.parseLong(Files.readString(checkpointFile, StandardCharsets.US_ASCII).trim());
+            }
+
+            List<Segment> segments = segments();
+            if (segments.isEmpty()) {
+                lastSequence = checkpoint;
+                current = createSegment(checkpoint + 1);
+            } else {
+                Segment last = segments.getLast();
+                last.buffer = map(last.path, Math.max(segmentSize, Files.size(last.path)), FileChannel.MapMode.READ_WRITE);
+                long[] lastInSegment = {last.firstSequence - 1};
+                last.position = scan(last.buffer, last.firstSequence, (sequence, offset) -> lastInSegment[0] = sequence);
+                // Clear a torn frame so it cannot be mistaken for a record after the next crash
+                for (int i = last.position; i < Math.min(last.buffer.capacity(), last.position + FRAME_SIZE); i++) {
+                    last.buffer.put(i, (byte) 0);
+                }
+                last.forcedPosition = last.position;
+                lastSequence = Math.max(checkpoint, lastInSegment[0]);
+                current = last;
+            }
+            durableSequence.set(lastSequence);
+            log.info("Journal opened in {} at sequence {}, checkpoint {}", directory, lastSequence, checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Visit the valid frames of a segment
+     * @return the offset after the last valid frame
+     */
+    private static int scan(ByteBuffer buffer, long firstSequence, FrameVisitor visitor) {
+        if (buffer.capacity() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            return SEGMENT_HEADER_SIZE;
+        }
+        int position = SEGMENT_HEADER_SIZE;
+        long expected = firstSequence;
+        while (position + FRAME_SIZE <= buffer.capacity()
+                && buffer.getInt(position) == JournalRecord.SIZE
+                && buffer.getLong(position + 8) == expected
+                && buffer.getInt(position + 4) == checksum(buffer, position)) {
+            visitor.visit(expected, position);
+            expected++;
+            position += FRAME_SIZE;
+        }
+        return position;
+    }
+
+    private static int checksum(ByteBuffer buffer, int frameOffset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(frameOffset + 8, FRAME_SIZE - 8));
+        return (int) crc.getValue();
+    }
+
+    private void roll() {
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            current.buffer.force();
+            durableSequence.accumulateAndGet(lastSequence, Math::max);
+        }
+        current = createSegment(lastSequence + 1);
+    }
+
+    private void forceNow() {
+        syncLock.lock();
+        try {
+            force();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Force what was appended since the last force. Runs under the sync lock; appends continue meanwhile.
+     */
+    private void force() {
+        Segment segment;
+        int from;
+        int to;
+        long upTo;
+        appendLock.lock();
+        try {
+            segment = current;
+            from = segment.forcedPosition;
+            to = segment.position;
+            upTo = lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        if (to > from) {
+            segment.buffer.force(from, to - from);
+        }
+        appendLock.lock();
+        try {
+            segment.forcedPosition = Math.max(segment.forcedPosition, to);
+        } finally {
+            appendLock.unlock();
+        }
+        durableSequence.accumulateAndGet(upTo, Math::max);
+    }
+
+    private Segment createSegment(long firstSequence) {
+        Segment segment = new Segment(directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX)),
+                firstSequence);
+        try {
+            segment.buffer = map(segment.path, segmentSize, FileChannel.MapMode.READ_WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + segment.path, e);
+        }
+        segment.buffer.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putLong(8, firstSequence);
+        segment.position = SEGMENT_HEADER_SIZE;
+        segment.forcedPosition = SEGMENT_HEADER_SIZE;
+        return segment;
+    }
+
+    private List<Segment> segments() {
+        List<Segment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).forEach(path -> {
+                String name = path.getFileName().toString();
+                segments.add(new Segment(path,
+                        Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list journal segments in " + directory, e);
+        }
+        segments.sort(Comparator.comparingLong(segment -> segment.firstSequence));
+        return segments;
+    }
+
+    private static MappedByteBuffer map(Path path, long size, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FrameVisitor {
+        void visit(long sequence, int offset);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long firstSequence;
+        private MappedByteBuffer buffer;
+        private int position;
+        private int forcedPosition;
+
+        private Segment(Path path, long firstSequence) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+        }
+    }
+}
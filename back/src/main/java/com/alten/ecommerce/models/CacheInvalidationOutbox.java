@@ -0,0 +1,42 @@
+package com.alten.ecommerce.models;
+
+import com.alten.ecommerce.cache.CacheInvalidationEvent;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transactional outbox row for cross-node cache invalidation, written in the same transaction as the catalog change
+ */
+@Entity
+@Data
+@Table(name = "cache_invalidation_outbox", indexes = {
+        @Index(name = "idx_cache_invalidation_outbox_created_at", columnList = "created_at")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private CacheInvalidationEvent.EntityType entityType;
+
+    @Column(name = "entity_key", nullable = false)
+    private String entityKey;
+
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+}
@@ -19,7 +19,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_carts_user", columnNames = "user_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
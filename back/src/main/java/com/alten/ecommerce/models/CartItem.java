@@ -14,12 +14,21 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cart_items_cart_product", columnNames = {"cart_id", "product_id"})
+}, indexes = {
+        @Index(name = "idx_cart_items_product", columnList = "product_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class CartItem {
 
+    /**
+     * Largest quantity of one product in a cart, enforced by both cart engines and the table's check constraint
+     */
+    public static final int MAX_QUANTITY = 999;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -36,9 +45,15 @@ public class CartItem {
     @Column(name = "quantity", nullable = false)
     @NotNull(message = "Quantity is mandatory")
     @Min(value = 1, message = "Quantity must be at least 1")
-    @Max(value = 999, message = "Quantity cannot exceed 999")
+    @Max(value = MAX_QUANTITY, message = "Quantity cannot exceed " + MAX_QUANTITY)
     private Integer quantity;
 
+    /**
+     * Product price when the line was last added to, compared with the current price on revalidation
+     */
+    @Column(name = "unit_price", nullable = false)
+    private BigDecimal unitPrice;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -48,8 +63,11 @@ public class CartItem {
     private LocalDateTime updatedAt;
 
 
+    /**
+     * Line total at the price the product was added at, without loading the product
+     */
     public BigDecimal getTotalPrice() {
-        return product.getPrice().multiply(BigDecimal.valueOf(quantity));
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
     }
 
 }
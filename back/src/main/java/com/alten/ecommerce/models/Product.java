@@ -15,7 +15,11 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category", columnList = "category_id"),
+        @Index(name = "idx_products_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_products_name", columnList = "name")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
@@ -44,7 +48,7 @@ public class Product {
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "category_id", nullable = false, foreignKey = @ForeignKey(name = "fk_category_product"))
-    @NotBlank(message = "Product category is mandatory")
+    @NotNull(message = "Product category is mandatory")
     private Category category;
 
     @Column(name = "price", nullable = false)
@@ -0,0 +1,37 @@
+package com.alten.ecommerce.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Popularity counters of a product. Rows are only written by the batched upsert of
+ * {@link com.alten.ecommerce.repositories.ProductStatsRepositoryCustom}, the entity is used for reads.
+ */
+@Entity
+@Data
+@Table(name = "product_stats")
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStats {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "view_count", nullable = false)
+    private long viewCount;
+
+    @Column(name = "cart_add_count", nullable = false)
+    private long cartAddCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+}
@@ -0,0 +1,24 @@
+package com.alten.ecommerce.models;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Time windows of the trending products, each a ring of buckets
+ */
+@Getter
+public enum TrendingWindow {
+
+    HOUR(60, Duration.ofMinutes(1)),
+    DAY(96, Duration.ofMinutes(15));
+
+    private final int bucketCount;
+    private final Duration bucketWidth;
+
+    TrendingWindow(int bucketCount, Duration bucketWidth) {
+        this.bucketCount = bucketCount;
+        this.bucketWidth = bucketWidth;
+    }
+
+}
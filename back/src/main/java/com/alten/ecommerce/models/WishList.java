@@ -28,6 +28,19 @@ public class WishList {
     @OneToMany(mappedBy = "wishList", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<WishListItem> items = new ArrayList<>();
 
+    /**
+     * Serialized {@link com.alten.ecommerce.analytics.CompressedBitmap} of the product ids in {@link #items},
+     * null until the wishlist is first written after the column was added
+     */
+    @Column(name = "product_bitmap", length = 16_777_215)
+    private byte[] productBitmap;
+
+    /**
+     * Bumped on every bitmap write, so caches can tell which of two committed bitmaps is newer
+     */
+    @Column(name = "product_bitmap_version", nullable = false)
+    private long productBitmapVersion;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
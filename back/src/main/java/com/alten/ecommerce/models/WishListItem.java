@@ -10,7 +10,11 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "wishlist_items")
+@Table(name = "wishlist_items", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_wishlist_items_wishlist_product", columnNames = {"wishlist_id", "product_id"})
+}, indexes = {
+        @Index(name = "idx_wishlist_items_product", columnList = "product_id")
+})
 public class WishListItem {
 
     @Id
@@ -0,0 +1,25 @@
+package com.alten.ecommerce.models.dtos;
+
+import com.alten.ecommerce.models.InventoryStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * A cart line checked against its product: the price it was added at, the current price and stock
+ * @param priceDelta current price minus the price the line was added at
+ * @param lineTotal quantity at the current price
+ */
+public record CartLineCheckDTO(
+        Long productId,
+        String name,
+        int quantity,
+        BigDecimal addedPrice,
+        BigDecimal currentPrice,
+        BigDecimal priceDelta,
+        Integer stock,
+        InventoryStatus inventoryStatus,
+        boolean priceChanged,
+        boolean outOfStock,
+        boolean insufficientStock,
+        BigDecimal lineTotal
+) {}
@@ -0,0 +1,53 @@
+package com.alten.ecommerce.models.dtos;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.projections.CartLineCheckProjection;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A cart checked against current prices and stock
+ * @param addedTotal the cart at the prices its lines were added at
+ * @param currentTotal the cart at current prices
+ * @param availableTotal the lines that can be ordered now, at current prices
+ * @param changed whether any line changed price or can no longer be ordered as is
+ */
+public record CartRevalidationDTO(
+        Long cartId,
+        List<CartLineCheckDTO> lines,
+        BigDecimal addedTotal,
+        BigDecimal currentTotal,
+        BigDecimal availableTotal,
+        boolean changed
+) {
+    public static CartRevalidationDTO fromLines(List<CartLineCheckProjection> rows) {
+        if (rows.isEmpty()) {
+            return new CartRevalidationDTO(null, List.of(), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, false);
+        }
+        CartLineCheckProjection first = rows.getFirst();
+        List<CartLineCheckDTO> lines = rows.stream()
+                .filter(row -> row.productId() != null)
+                .map(row -> new CartLineCheckDTO(
+                        row.productId(),
+                        row.name(),
+                        row.quantity(),
+                        row.addedPrice(),
+                        row.currentPrice(),
+                        row.priceDelta(),
+                        row.stock(),
+                        row.inventoryStatus(),
+                        row.priceDelta().signum() != 0,
+                        row.inventoryStatus() == InventoryStatus.OUTOFSTOCK || row.stock() == 0,
+                        row.stock() < row.quantity(),
+                        row.lineTotal()))
+                .toList();
+        boolean changed = lines.stream().anyMatch(line -> line.priceChanged() || line.outOfStock() || line.insufficientStock());
+        return new CartRevalidationDTO(first.cartId(), lines, orZero(first.addedTotal()), orZero(first.currentTotal()),
+                orZero(first.availableTotal()), changed);
+    }
+
+    private static BigDecimal orZero(BigDecimal total) {
+        return total == null ? BigDecimal.ZERO : total;
+    }
+}
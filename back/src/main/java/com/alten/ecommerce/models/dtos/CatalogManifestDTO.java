@@ -0,0 +1,18 @@
+package com.alten.ecommerce.models.dtos;
+
+/**
+ * Points clients at the current catalog snapshot
+ *
+ * @param version     content hash of the snapshot, changes whenever the catalog does
+ * @param url         immutable URL of this version
+ * @param size        size in bytes of the uncompressed JSON
+ * @param gzipSize    size in bytes of the gzip encoding
+ * @param generatedAt epoch millis when this node produced the snapshot
+ */
+public record CatalogManifestDTO(
+        String version,
+        String url,
+        long size,
+        long gzipSize,
+        long generatedAt
+) {}
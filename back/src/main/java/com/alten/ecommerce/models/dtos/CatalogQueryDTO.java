@@ -0,0 +1,25 @@
+package com.alten.ecommerce.models.dtos;
+
+import com.alten.ecommerce.analytics.ColumnarCatalogIndex;
+import com.alten.ecommerce.models.InventoryStatus;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+/**
+ * Filter, order and limit of a catalog query, a null filter field means no filter
+ *
+ * @param sort      column to order by, null for product id order
+ * @param direction order of the sort column, ascending when null; only allowed with a sort
+ */
+public record CatalogQueryDTO(
+        String category,
+        InventoryStatus inventoryStatus,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        BigDecimal minRating,
+        Integer minQuantity,
+        ColumnarCatalogIndex.SortKey sort,
+        Sort.Direction direction,
+        int limit
+) {}
@@ -0,0 +1,11 @@
+package com.alten.ecommerce.models.dtos;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public record CatalogTotalsDTO(
+        long productCount,
+        long totalUnits,
+        BigDecimal inventoryValue,
+        Map<String, BigDecimal> inventoryValueByCategory
+) {}
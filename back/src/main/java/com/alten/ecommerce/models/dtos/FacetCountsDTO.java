@@ -0,0 +1,16 @@
+package com.alten.ecommerce.models.dtos;
+
+import com.alten.ecommerce.models.InventoryStatus;
+
+import java.util.Map;
+
+/**
+ * Product counts per facet value. Each facet ignores its own filter so every value stays selectable.
+ */
+public record FacetCountsDTO(
+        long total,
+        Map<String, Long> categories,
+        Map<InventoryStatus, Long> inventoryStatuses,
+        Map<String, Long> priceBuckets,
+        Map<String, Long> ratingBands
+) {}
@@ -0,0 +1,16 @@
+package com.alten.ecommerce.models.dtos;
+
+import com.alten.ecommerce.models.InventoryStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Optional filters applied before counting facets, a null field means no filter
+ */
+public record FacetFilterDTO(
+        String category,
+        InventoryStatus inventoryStatus,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        BigDecimal minRating
+) {}
@@ -0,0 +1,12 @@
+package com.alten.ecommerce.models.dtos;
+
+import java.util.List;
+
+/**
+ * @param products the products found, in the order their ids were requested
+ * @param missing  the requested ids with no product
+ */
+public record ProductBatchDTO(
+        List<ProductDTO> products,
+        List<Long> missing
+) {}
@@ -0,0 +1,9 @@
+package com.alten.ecommerce.models.dtos;
+
+/**
+ * @param score number of carts and wishlists holding both this product and the one recommendations were asked for
+ */
+public record RecommendedProductDTO(
+        ProductDTO product,
+        int score
+) {}
@@ -0,0 +1,14 @@
+package com.alten.ecommerce.models.dtos;
+
+import java.util.Map;
+
+/**
+ * @param thumbnails thumbnail URL per width in pixels
+ */
+public record StoredImageDTO(
+        String hash,
+        String url,
+        String contentType,
+        long size,
+        Map<Integer, String> thumbnails
+) {}
@@ -0,0 +1,9 @@
+package com.alten.ecommerce.models.dtos;
+
+/**
+ * @param activity cart and wishlist adds of the product during the window
+ */
+public record TrendingProductDTO(
+        ProductDTO product,
+        long activity
+) {}
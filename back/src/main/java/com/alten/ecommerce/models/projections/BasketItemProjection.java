@@ -0,0 +1,9 @@
+package com.alten.ecommerce.models.projections;
+
+/**
+ * One product of a cart or wishlist, the only columns needed to rebuild co-occurrence counts
+ */
+public record BasketItemProjection(
+        Long basketId,
+        Long productId
+) {}
@@ -0,0 +1,25 @@
+package com.alten.ecommerce.models.projections;
+
+import com.alten.ecommerce.models.InventoryStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * One cart line next to its product's current price and stock. The three totals are the same on every row
+ * of a cart; an empty cart is a single row with only the cart id set.
+ */
+public record CartLineCheckProjection(
+        Long cartId,
+        Long productId,
+        String name,
+        Integer quantity,
+        BigDecimal addedPrice,
+        BigDecimal currentPrice,
+        BigDecimal priceDelta,
+        Integer stock,
+        InventoryStatus inventoryStatus,
+        BigDecimal lineTotal,
+        BigDecimal addedTotal,
+        BigDecimal currentTotal,
+        BigDecimal availableTotal
+) {}
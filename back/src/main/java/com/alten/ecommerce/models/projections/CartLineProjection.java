@@ -0,0 +1,10 @@
+package com.alten.ecommerce.models.projections;
+
+/**
+ * One line of a user's cart; an empty cart is a single row with a null product and quantity
+ */
+public record CartLineProjection(
+        Long cartId,
+        Long productId,
+        Integer quantity
+) {}
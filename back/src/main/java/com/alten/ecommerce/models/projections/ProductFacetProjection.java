@@ -0,0 +1,17 @@
+package com.alten.ecommerce.models.projections;
+
+import com.alten.ecommerce.models.InventoryStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * The product columns needed to build catalog facets, without descriptions or other text
+ */
+public record ProductFacetProjection(
+        Long id,
+        String category,
+        InventoryStatus inventoryStatus,
+        BigDecimal price,
+        BigDecimal rating,
+        Integer quantity
+) {}
@@ -0,0 +1,57 @@
+package com.alten.ecommerce.models.projections;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Product fields selectable through {@code ?fields=}, named as in {@link com.alten.ecommerce.models.dtos.ProductDTO}
+ */
+public enum ProductField {
+
+    ID("id"),
+    CODE("code"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    IMAGE("image"),
+    CATEGORY("category"),
+    PRICE("price"),
+    QUANTITY("quantity"),
+    INTERNAL_REFERENCE("internalReference"),
+    SHELL_ID("shellId"),
+    INVENTORY_STATUS("inventoryStatus"),
+    RATING("rating"),
+    CREATED_AT("createdAt"),
+    UPDATED_AT("updatedAt");
+
+    private static final Map<String, ProductField> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(ProductField::fieldName, Function.identity()));
+
+    private final String fieldName;
+
+    ProductField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    public static Optional<ProductField> fromName(String name) {
+        return Optional.ofNullable(BY_NAME.get(name));
+    }
+
+    /**
+     * Convert a selected column to its JSON value, timestamps become epoch millis like in ProductDTO
+     */
+    public Object toJsonValue(Object value) {
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,11 @@
+package com.alten.ecommerce.models.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Product id and last modification time, enough to tell whether a cached copy is still current
+ */
+public record ProductVersionProjection(
+        Long id,
+        LocalDateTime updatedAt
+) {}
@@ -0,0 +1,11 @@
+package com.alten.ecommerce.models.projections;
+
+/**
+ * A wishlist's stored product bitmap and its version, with the owner's id, to feed the back-in-stock index
+ * @param productBitmap null when the wishlist was not written since the bitmap column was added
+ */
+public record WishListStateProjection(
+        Long userId,
+        long version,
+        byte[] productBitmap
+) {}
@@ -0,0 +1,9 @@
+package com.alten.ecommerce.models.projections;
+
+/**
+ * A user waiting on a product through their wishlist, the only columns needed to rebuild the back-in-stock index
+ */
+public record WishListSubscriptionProjection(
+        Long productId,
+        Long userId
+) {}
@@ -0,0 +1,10 @@
+package com.alten.ecommerce.notifications;
+
+import java.time.Instant;
+
+public record BackInStockNotification(
+        String email,
+        Long productId,
+        String productName,
+        Instant createdAt
+) {}
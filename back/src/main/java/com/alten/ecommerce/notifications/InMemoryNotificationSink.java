@@ -0,0 +1,51 @@
+package com.alten.ecommerce.notifications;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in delivery channel: keeps the most recent notifications in memory instead of sending them
+ */
+@Component
+@Slf4j
+public class InMemoryNotificationSink implements NotificationSink {
+
+    private final int capacity;
+    private final Deque<BackInStockNotification> recent = new ArrayDeque<>();
+    private final AtomicLong delivered = new AtomicLong();
+
+    public InMemoryNotificationSink(@Value("${app.notifications.sink.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void deliver(BackInStockNotification notification) {
+        synchronized (recent) {
+            if (recent.size() == capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(notification);
+        }
+        delivered.incrementAndGet();
+        log.debug("Product {} is back in stock, notified {}", notification.productId(), notification.email());
+    }
+
+    /**
+     * The retained notifications, oldest first
+     */
+    public List<BackInStockNotification> recent() {
+        synchronized (recent) {
+            return List.copyOf(recent);
+        }
+    }
+
+    public long delivered() {
+        return delivered.get();
+    }
+}
@@ -0,0 +1,11 @@
+package com.alten.ecommerce.notifications;
+
+/**
+ * Delivery channel of user notifications (mail, push...). Called from the notification workers, so
+ * implementations must be thread safe and may block.
+ */
+public interface NotificationSink {
+
+    void deliver(BackInStockNotification notification);
+
+}
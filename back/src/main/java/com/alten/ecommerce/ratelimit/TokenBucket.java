@@ -0,0 +1,46 @@
+package com.alten.ecommerce.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time" updated by CAS,
+ * so {@link #tryAcquire} costs a volatile read and usually one compare-and-set, and does not allocate.
+ * Used for per-client request limits and to pace outgoing notifications.
+ */
+public final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(int capacity, long refillPeriodNanos, long now) {
+        this.emissionIntervalNanos = Math.max(1, refillPeriodNanos / capacity);
+        this.burstNanos = emissionIntervalNanos * capacity;
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * Take one token
+     * @return 0 when granted, otherwise the nanoseconds to wait until a token is available
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + emissionIntervalNanos;
+            long waitNanos = next - burstNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * A full bucket holds no information and can be dropped
+     */
+    public boolean isFull(long now) {
+        return theoreticalArrival.get() <= now;
+    }
+}
@@ -0,0 +1,35 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.CacheInvalidationOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CacheInvalidationOutboxRepository extends JpaRepository<CacheInvalidationOutbox, Long> {
+
+    /**
+     * Find the invalidations after an id, in publication order
+     * @return at most 500 rows ordered by id
+     */
+    List<CacheInvalidationOutbox> findTop500ByIdGreaterThanOrderByIdAsc(long id);
+
+    List<CacheInvalidationOutbox> findByIdIn(Collection<Long> ids);
+
+    /**
+     * @return the highest id created before the cutoff, 0 when there is none
+     */
+    @Query("select coalesce(max(o.id), 0) from CacheInvalidationOutbox o where o.createdAt < :cutoff")
+    long findMaxIdCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("delete from CacheInvalidationOutbox o where o.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+
+}
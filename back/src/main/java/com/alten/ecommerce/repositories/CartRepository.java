@@ -1,13 +1,18 @@
 package com.alten.ecommerce.repositories;
 
 import com.alten.ecommerce.models.Cart;
+import com.alten.ecommerce.models.projections.BasketItemProjection;
+import com.alten.ecommerce.models.projections.CartLineProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CartRepository extends JpaRepository<Cart, Long> {
+public interface CartRepository extends JpaRepository<Cart, Long>, CartRepositoryCustom {
 
     /**
      * Find cart by user id
@@ -16,4 +21,23 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
      */
     Optional<Cart> findByUser_Email(String userId);
 
+    @Query("select c.id from Cart c where c.user.email = :email")
+    Optional<Long> findIdByUserEmail(@Param("email") String email);
+
+    /**
+     * Every cart item as (cart id, product id), grouped by cart
+     */
+    @Query("select new com.alten.ecommerce.models.projections.BasketItemProjection(i.cart.id, i.product.id) " +
+            "from CartItem i order by i.cart.id")
+    List<BasketItemProjection> findAllBasketItems();
+
+    /**
+     * The lines of a user's cart in insertion order, without loading the cart, item or product entities
+     * @param email the user's email
+     * @return one row per item, a single row with null product for an empty cart, nothing when there is no cart
+     */
+    @Query("select new com.alten.ecommerce.models.projections.CartLineProjection(c.id, p.id, i.quantity) " +
+            "from Cart c left join c.items i left join i.product p where c.user.email = :email order by i.id")
+    List<CartLineProjection> findLinesByUserEmail(@Param("email") String email);
+
 }
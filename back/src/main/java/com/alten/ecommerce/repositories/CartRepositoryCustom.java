@@ -0,0 +1,70 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.projections.CartLineCheckProjection;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+public interface CartRepositoryCustom {
+
+    /**
+     * Apply cart line changes in one transaction and JDBC batches: the carts first get a new updated_at, which
+     * locks them against the sweeper, then a quantity of 0 deletes the line and any other inserts or updates it.
+     * Lines of deleted products or carts are skipped.
+     * @param changes the new quantity per cart and product
+     * @return the carts that no longer exist, none of whose lines were written
+     */
+    @Transactional
+    Set<Long> writeLines(List<LineChange> changes);
+
+    /**
+     * Add to the quantity of one cart line with an UPDATE, falling back to an INSERT when the cart does not hold
+     * the product yet. A concurrent insert of the same line loses on the unique (cart_id, product_id) constraint
+     * and is retried as an update.
+     * @param unitPrice the product's current price, kept on the line as the price it was added at
+     * @return true when the line was inserted
+     */
+    @Transactional
+    boolean addToLine(long cartId, long productId, int quantity, BigDecimal unitPrice);
+
+    /**
+     * Mark a cart as used now. The row stays locked until the caller's transaction ends, so a sweep cannot
+     * delete it in between
+     * @return false when the cart no longer exists
+     */
+    @Transactional
+    boolean touch(long cartId);
+
+    /**
+     * Carts to sweep, by id after {@code afterId}: empty carts last updated before {@code emptyBefore}, and any
+     * cart last updated before {@code abandonedBefore}
+     */
+    List<Long> findSweepCandidates(long afterId, LocalDateTime emptyBefore, LocalDateTime abandonedBefore, int limit);
+
+    /**
+     * Delete those of the given carts that still match the sweep criteria once locked, so a cart used since it
+     * was selected is kept. With {@code archive} the lines of the deleted carts are copied to
+     * abandoned_cart_items first.
+     * @return the ids of the deleted carts
+     */
+    @Transactional
+    List<Long> sweep(List<Long> cartIds, LocalDateTime emptyBefore, LocalDateTime abandonedBefore, boolean archive);
+
+    /**
+     * Compare every line of a user's cart with its product's current price and stock in one query,
+     * with the per-line diffs and the cart totals computed by the database
+     * @return one row per line in insertion order, a single row with null product for an empty cart,
+     * nothing when there is no cart
+     */
+    List<CartLineCheckProjection> checkLines(String email);
+
+    /**
+     * @param unitPrice the price the product was added at, null to keep the line's price, or to take the product's
+     *                  current price for a new line
+     */
+    record LineChange(long cartId, long productId, int quantity, BigDecimal unitPrice) {}
+
+}
@@ -0,0 +1,242 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.projections.CartLineCheckProjection;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cart line writes in plain SQL, without loading the cart or its items. Batched writes are MySQL upserts with
+ * INSERT ... ON DUPLICATE KEY UPDATE and other databases with MERGE; both read the product id and price from the
+ * products table, so a line for a deleted product or cart inserts nothing. A line without a price keeps the one it
+ * was added at, or records the current one when it is new. Swept carts are found with an unlocked read, then locked and re-checked in the deleting transaction.
+ */
+public class CartRepositoryImpl implements CartRepositoryCustom {
+
+    private static final String MYSQL_UPSERT = """
+            INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, created_at, updated_at)
+            SELECT ?, id, ?, COALESCE(?, price), ?, ? FROM products
+            WHERE id = ? AND EXISTS (SELECT 1 FROM carts WHERE id = ?)
+            ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), unit_price = COALESCE(?, unit_price),
+                                    updated_at = VALUES(updated_at)
+            """;
+
+    private static final String MERGE_UPSERT = """
+            MERGE INTO cart_items t
+            USING (SELECT CAST(? AS BIGINT) AS cart_id, id AS product_id, CAST(? AS INTEGER) AS quantity,
+                          COALESCE(CAST(? AS NUMERIC(38, 2)), price) AS unit_price,
+                          CAST(? AS TIMESTAMP(6)) AS created_at,
+                          CAST(? AS TIMESTAMP(6)) AS updated_at
+                   FROM products WHERE id = ? AND EXISTS (SELECT 1 FROM carts WHERE id = ?)) s
+            ON t.cart_id = s.cart_id AND t.product_id = s.product_id
+            WHEN MATCHED THEN UPDATE SET quantity = s.quantity,
+                                         unit_price = COALESCE(CAST(? AS NUMERIC(38, 2)), t.unit_price),
+                                         updated_at = s.updated_at
+            WHEN NOT MATCHED THEN INSERT (cart_id, product_id, quantity, unit_price, created_at, updated_at)
+                                  VALUES (s.cart_id, s.product_id, s.quantity, s.unit_price, s.created_at, s.updated_at)
+            """;
+
+    private static final String DELETE = "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?";
+
+    private static final String ADD = """
+            UPDATE cart_items SET quantity = quantity + ?, unit_price = ?, updated_at = ?
+            WHERE cart_id = ? AND product_id = ?
+            """;
+
+    private static final String INSERT = """
+            INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String TOUCH = "UPDATE carts SET updated_at = ? WHERE id = ?";
+
+    // Bound with the empty cart cutoff, then the abandoned cart one, which is the earlier of the two
+    private static final String SWEEPABLE = "c.updated_at < ? AND (c.updated_at < ? "
+            + "OR NOT EXISTS (SELECT 1 FROM cart_items i WHERE i.cart_id = c.id))";
+
+    private static final String SWEEP_CANDIDATES = "SELECT c.id FROM carts c WHERE c.id > ? AND " + SWEEPABLE
+            + " ORDER BY c.id LIMIT ?";
+
+    private static final String LOCK_SWEEPABLE = "SELECT c.id FROM carts c WHERE c.id IN (%s) AND " + SWEEPABLE
+            + " FOR UPDATE";
+
+    private static final String ARCHIVE = """
+            INSERT INTO abandoned_cart_items (cart_id, user_id, product_id, quantity, unit_price, cart_updated_at,
+                                              archived_at)
+            SELECT c.id, c.user_id, i.product_id, i.quantity, i.unit_price, c.updated_at, ?
+            FROM carts c JOIN cart_items i ON i.cart_id = c.id
+            WHERE c.id IN (%s)
+            """;
+
+    private static final String DELETE_ITEMS = "DELETE FROM cart_items WHERE cart_id IN (%s)";
+
+    private static final String DELETE_CARTS = "DELETE FROM carts WHERE id IN (%s)";
+
+    // One row per line, or a single row with null product for an empty cart. The window sums repeat the cart
+    // totals on every row, so the lines, their diffs and the totals all come from one query
+    private static final String CHECK_LINES = """
+            SELECT c.id AS cart_id, p.id AS product_id, p.name, i.quantity, i.unit_price AS added_price,
+                   p.price AS current_price, p.price - i.unit_price AS price_delta,
+                   p.quantity AS stock, p.inventory_status,
+                   i.quantity * p.price AS line_total,
+                   SUM(i.quantity * i.unit_price) OVER () AS added_total,
+                   SUM(i.quantity * p.price) OVER () AS current_total,
+                   SUM(CASE WHEN p.inventory_status <> 'OUTOFSTOCK' AND p.quantity >= i.quantity
+                            THEN i.quantity * p.price ELSE 0 END) OVER () AS available_total
+            FROM carts c
+            JOIN users u ON u.id = c.user_id
+            LEFT JOIN cart_items i ON i.cart_id = c.id
+            LEFT JOIN products p ON p.id = i.product_id
+            WHERE u.email = ?
+            ORDER BY i.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String upsert;
+
+    public CartRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Set<Long> writeLines(List<LineChange> changes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<LineChange> upserts = changes.stream().filter(change -> change.quantity() > 0).toList();
+        List<LineChange> deletes = changes.stream().filter(change -> change.quantity() <= 0).toList();
+        List<Long> carts = changes.stream().map(LineChange::cartId).distinct().toList();
+
+        int[][] touched = jdbcTemplate.batchUpdate(TOUCH, carts, carts.size(), (statement, cartId) -> {
+            statement.setTimestamp(1, now);
+            statement.setLong(2, cartId);
+        });
+        Set<Long> missing = new HashSet<>();
+        int index = 0;
+        for (int[] batch : touched) {
+            for (int count : batch) {
+                // Drivers rewriting the batch may only report SUCCESS_NO_INFO, which is not a miss
+                if (count == 0) {
+                    missing.add(carts.get(index));
+                }
+                index++;
+            }
+        }
+
+        // Both upserts bind cart id, quantity, unit price, created at, updated at, the product id, the cart id, then
+        // the unit price again for an existing line
+        jdbcTemplate.batchUpdate(upsert(), upserts, upserts.size(), (statement, change) -> {
+            statement.setLong(1, change.cartId());
+            statement.setInt(2, change.quantity());
+            statement.setBigDecimal(3, change.unitPrice());
+            statement.setTimestamp(4, now);
+            statement.setTimestamp(5, now);
+            statement.setLong(6, change.productId());
+            statement.setLong(7, change.cartId());
+            statement.setBigDecimal(8, change.unitPrice());
+        });
+        jdbcTemplate.batchUpdate(DELETE, deletes, deletes.size(), (statement, change) -> {
+            statement.setLong(1, change.cartId());
+            statement.setLong(2, change.productId());
+        });
+        return missing;
+    }
+
+    @Override
+    public boolean addToLine(long cartId, long productId, int quantity, BigDecimal unitPrice) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (jdbcTemplate.update(ADD, quantity, unitPrice, now, cartId, productId) > 0) {
+            return false;
+        }
+        try {
+            jdbcTemplate.update(INSERT, cartId, productId, quantity, unitPrice, now, now);
+            return true;
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(ADD, quantity, unitPrice, now, cartId, productId);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean touch(long cartId) {
+        return jdbcTemplate.update(TOUCH, Timestamp.valueOf(LocalDateTime.now()), cartId) > 0;
+    }
+
+    @Override
+    public List<Long> findSweepCandidates(long afterId, LocalDateTime emptyBefore, LocalDateTime abandonedBefore,
+                                          int limit) {
+        return jdbcTemplate.queryForList(SWEEP_CANDIDATES, Long.class, afterId, Timestamp.valueOf(emptyBefore),
+                Timestamp.valueOf(abandonedBefore), limit);
+    }
+
+    @Override
+    public List<Long> sweep(List<Long> cartIds, LocalDateTime emptyBefore, LocalDateTime abandonedBefore,
+                            boolean archive) {
+        if (cartIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> lockArgs = new ArrayList<>(cartIds);
+        lockArgs.add(Timestamp.valueOf(emptyBefore));
+        lockArgs.add(Timestamp.valueOf(abandonedBefore));
+        List<Long> locked = jdbcTemplate.queryForList(LOCK_SWEEPABLE.formatted(placeholders(cartIds.size())),
+                Long.class, lockArgs.toArray());
+        if (locked.isEmpty()) {
+            return locked;
+        }
+
+        String in = placeholders(locked.size());
+        if (archive) {
+            List<Object> archiveArgs = new ArrayList<>();
+            archiveArgs.add(Timestamp.valueOf(LocalDateTime.now()));
+            archiveArgs.addAll(locked);
+            jdbcTemplate.update(ARCHIVE.formatted(in), archiveArgs.toArray());
+        }
+        jdbcTemplate.update(DELETE_ITEMS.formatted(in), locked.toArray());
+        jdbcTemplate.update(DELETE_CARTS.formatted(in), locked.toArray());
+        return locked;
+    }
+
+    @Override
+    public List<CartLineCheckProjection> checkLines(String email) {
+        return jdbcTemplate.query(CHECK_LINES, (rs, rowNum) -> {
+            String status = rs.getString("inventory_status");
+            return new CartLineCheckProjection(
+                    rs.getLong("cart_id"),
+                    rs.getObject("product_id", Long.class),
+                    rs.getString("name"),
+                    rs.getObject("quantity", Integer.class),
+                    rs.getBigDecimal("added_price"),
+                    rs.getBigDecimal("current_price"),
+                    rs.getBigDecimal("price_delta"),
+                    rs.getObject("stock", Integer.class),
+                    status == null ? null : InventoryStatus.valueOf(status),
+                    rs.getBigDecimal("line_total"),
+                    rs.getBigDecimal("added_total"),
+                    rs.getBigDecimal("current_total"),
+                    rs.getBigDecimal("available_total"));
+        }, email);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private String upsert() {
+        String statement = upsert;
+        if (statement == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            statement = "MySQL".equalsIgnoreCase(product) ? MYSQL_UPSERT : MERGE_UPSERT;
+            upsert = statement;
+        }
+        return statement;
+    }
+}
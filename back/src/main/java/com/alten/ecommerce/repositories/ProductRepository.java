@@ -3,9 +3,12 @@ package com.alten.ecommerce.repositories;
 import com.alten.ecommerce.models.Category;
 import com.alten.ecommerce.models.InventoryStatus;
 import com.alten.ecommerce.models.Product;
+import com.alten.ecommerce.models.projections.ProductFacetProjection;
+import com.alten.ecommerce.models.projections.ProductVersionProjection;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -18,7 +21,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
 
     /**
      * Check if product exists by code
@@ -35,4 +38,35 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     Collection<Product> findByNameContainingIgnoreCase(String name);
 
     Collection<Product> findByCategory_Name(@NotBlank(message = "Product category is mandatory") String category);
+
+    /**
+     * Load the facet columns of every product, used once to seed the in-memory facet index
+     * @return facet projections of all products
+     */
+    @Query("select new com.alten.ecommerce.models.projections.ProductFacetProjection(" +
+            "p.id, c.name, p.inventoryStatus, p.price, p.rating, p.quantity) " +
+            "from Product p join p.category c")
+    List<ProductFacetProjection> findAllFacetProjections();
+
+    @Query("select new com.alten.ecommerce.models.projections.ProductFacetProjection(" +
+            "p.id, c.name, p.inventoryStatus, p.price, p.rating, p.quantity) " +
+            "from Product p join p.category c where p.id = :id")
+    Optional<ProductFacetProjection> findFacetProjectionById(@Param("id") Long id);
+
+    @Query("select new com.alten.ecommerce.models.projections.ProductVersionProjection(p.id, p.updatedAt) from Product p")
+    List<ProductVersionProjection> findAllVersions();
+
+    /**
+     * All products, most popular first. Popularity is views plus weighted add-to-cart counts, products without stats rank last
+     * @param cartAddWeight how many views one add-to-cart is worth
+     */
+    @Query("select p from Product p join fetch p.category left join ProductStats s on s.productId = p.id " +
+            "order by coalesce(s.viewCount, 0) + coalesce(s.cartAddCount, 0) * :cartAddWeight desc, p.id")
+    List<Product> findAllOrderByPopularity(@Param("cartAddWeight") long cartAddWeight);
+
+    /**
+     * Load several products with their category in one query, in no particular order
+     */
+    @EntityGraph(attributePaths = "category")
+    List<Product> findByIdIn(Collection<Long> ids);
 }
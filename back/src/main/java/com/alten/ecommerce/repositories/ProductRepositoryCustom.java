@@ -0,0 +1,19 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.projections.ProductField;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Select only the given columns of the products, optionally restricted to one category
+     * @param fields the fields to select
+     * @param category the category name, or null for all products
+     * @return one map per product with the selected fields, in the order requested
+     */
+    List<Map<String, Object>> findFields(Collection<ProductField> fields, String category);
+
+}
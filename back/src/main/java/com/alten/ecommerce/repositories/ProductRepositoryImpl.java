@@ -0,0 +1,58 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.Category;
+import com.alten.ecommerce.models.Product;
+import com.alten.ecommerce.models.projections.ProductField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse fieldset queries: the SELECT clause lists only the requested columns,
+ * and the category table is joined only when needed.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFields(Collection<ProductField> fields, String category) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Product> product = query.from(Product.class);
+        Join<Product, Category> categoryJoin = category != null || fields.contains(ProductField.CATEGORY)
+                ? product.join("category")
+                : null;
+
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> (field == ProductField.CATEGORY
+                        ? categoryJoin.get("name")
+                        : product.get(field.fieldName())).alias(field.fieldName()))
+                .toList();
+        query.multiselect(selections);
+        if (category != null) {
+            query.where(builder.equal(categoryJoin.get("name"), category));
+        }
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (ProductField field : fields) {
+                        row.put(field.fieldName(), field.toJsonValue(tuple.get(field.fieldName())));
+                    }
+                    return row;
+                })
+                .toList();
+    }
+}
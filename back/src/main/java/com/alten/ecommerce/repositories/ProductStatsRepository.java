@@ -0,0 +1,9 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.ProductStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductStatsRepository extends JpaRepository<ProductStats, Long>, ProductStatsRepositoryCustom {
+}
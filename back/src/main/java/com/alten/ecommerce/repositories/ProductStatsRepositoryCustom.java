@@ -0,0 +1,20 @@
+package com.alten.ecommerce.repositories;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ProductStatsRepositoryCustom {
+
+    /**
+     * Add counter deltas to the stored counts in one JDBC batch, creating missing rows.
+     * Deltas of products deleted in the meantime are skipped. The batch is applied in one transaction, so a
+     * failed one leaves every count unchanged and its deltas can be retried whole.
+     * @param deltas the per-product increments to apply
+     */
+    @Transactional
+    void addCounts(List<Delta> deltas);
+
+    record Delta(long productId, long views, long cartAdds) {}
+
+}
@@ -0,0 +1,61 @@
+package com.alten.ecommerce.repositories;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Batched upsert of popularity counters, MySQL uses INSERT ... ON DUPLICATE KEY UPDATE and other databases MERGE.
+ * Both read the product id from the products table so a delta for a deleted product inserts nothing.
+ */
+public class ProductStatsRepositoryImpl implements ProductStatsRepositoryCustom {
+
+    private static final String MYSQL_UPSERT = """
+            INSERT INTO product_stats (product_id, view_count, cart_add_count, updated_at)
+            SELECT id, ?, ?, CURRENT_TIMESTAMP(6) FROM products WHERE id = ?
+            ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count),
+                                    cart_add_count = cart_add_count + VALUES(cart_add_count),
+                                    updated_at = VALUES(updated_at)
+            """;
+
+    private static final String MERGE_UPSERT = """
+            MERGE INTO product_stats t
+            USING (SELECT id AS product_id, CAST(? AS BIGINT) AS views, CAST(? AS BIGINT) AS cart_adds
+                   FROM products WHERE id = ?) s
+            ON t.product_id = s.product_id
+            WHEN MATCHED THEN UPDATE SET view_count = t.view_count + s.views,
+                                         cart_add_count = t.cart_add_count + s.cart_adds,
+                                         updated_at = LOCALTIMESTAMP
+            WHEN NOT MATCHED THEN INSERT (product_id, view_count, cart_add_count, updated_at)
+                                  VALUES (s.product_id, s.views, s.cart_adds, LOCALTIMESTAMP)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String upsert;
+
+    public ProductStatsRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addCounts(List<Delta> deltas) {
+        // Both statements bind views, cart adds, then the product id
+        jdbcTemplate.batchUpdate(upsert(), deltas, deltas.size(), (statement, delta) -> {
+            statement.setLong(1, delta.views());
+            statement.setLong(2, delta.cartAdds());
+            statement.setLong(3, delta.productId());
+        });
+    }
+
+    private String upsert() {
+        String statement = upsert;
+        if (statement == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            statement = "MySQL".equalsIgnoreCase(product) ? MYSQL_UPSERT : MERGE_UPSERT;
+            upsert = statement;
+        }
+        return statement;
+    }
+}
@@ -2,8 +2,12 @@ package com.alten.ecommerce.repositories;
 
 import com.alten.ecommerce.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +19,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByUsername(String username);
 
+    @Query("select u.email from User u where u.id in :ids")
+    List<String> findEmailsByIdIn(@Param("ids") Collection<Long> ids);
+
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.WishListItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WishListItemRepository extends JpaRepository<WishListItem, Long>, WishListItemRepositoryCustom {
+
+    @Query("select i.product.id from WishListItem i where i.wishList.id = :wishListId")
+    List<Long> findProductIdsByWishListId(@Param("wishListId") Long wishListId);
+
+    @Query("select i.product.id from WishListItem i where i.id = :id and i.wishList.id = :wishListId")
+    Optional<Long> findProductId(@Param("id") Long id, @Param("wishListId") Long wishListId);
+
+    /**
+     * Delete one item with a single statement, without loading it or its wishlist
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("delete from WishListItem i where i.id = :id and i.wishList.id = :wishListId")
+    int deleteItem(@Param("id") Long id, @Param("wishListId") Long wishListId);
+}
@@ -0,0 +1,12 @@
+package com.alten.ecommerce.repositories;
+
+public interface WishListItemRepositoryCustom {
+
+    /**
+     * Insert one wishlist item with a single statement, the unique (wishlist_id, product_id) constraint
+     * rejecting duplicates
+     * @return false when the wishlist already holds the product
+     */
+    boolean insertItem(long wishListId, long productId);
+
+}
@@ -0,0 +1,33 @@
+package com.alten.ecommerce.repositories;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Wishlist item writes in plain SQL, without loading the wishlist or its items
+ */
+public class WishListItemRepositoryImpl implements WishListItemRepositoryCustom {
+
+    private static final String INSERT = """
+            INSERT INTO wishlist_items (wishlist_id, product_id, created_at, updated_at) VALUES (?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WishListItemRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean insertItem(long wishListId, long productId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            return jdbcTemplate.update(INSERT, wishListId, productId, now, now) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -2,13 +2,50 @@ package com.alten.ecommerce.repositories;
 
 
 import com.alten.ecommerce.models.WishList;
+import com.alten.ecommerce.models.projections.BasketItemProjection;
+import com.alten.ecommerce.models.projections.WishListStateProjection;
+import com.alten.ecommerce.models.projections.WishListSubscriptionProjection;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.persistence.LockModeType;
 import jakarta.validation.constraints.Size;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface WishListRepository extends JpaRepository<WishList, Long> {
     Optional<WishList> findByUser_Email(@NotBlank(message = "Email is mandatory") @Email(message = "Email should be valid") @Size(max = 255, message = "Email must not exceed 255 characters") String userEmail);
+
+    /**
+     * Load a wishlist with its row locked until the transaction ends, so bitmap writes of one user are serialized
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from WishList w where w.user.email = :email")
+    Optional<WishList> findForUpdateByUserEmail(@Param("email") String email);
+
+    /**
+     * Every wishlist item as (wishlist id, product id), grouped by wishlist
+     */
+    @Query("select new com.alten.ecommerce.models.projections.BasketItemProjection(i.wishList.id, i.product.id) " +
+            "from WishListItem i order by i.wishList.id")
+    List<BasketItemProjection> findAllBasketItems();
+
+    /**
+     * Every (product, user) pair of the wishlists, grouped by product
+     */
+    @Query("select new com.alten.ecommerce.models.projections.WishListSubscriptionProjection(i.product.id, w.user.id) " +
+            "from WishListItem i join i.wishList w order by i.product.id")
+    List<WishListSubscriptionProjection> findAllSubscriptions();
+
+    @Query("select new com.alten.ecommerce.models.projections.WishListStateProjection(w.user.id, " +
+            "w.productBitmapVersion, w.productBitmap) from WishList w where w.user.email = :email")
+    Optional<WishListStateProjection> findStateByUserEmail(@Param("email") String email);
+
+    @Query("select new com.alten.ecommerce.models.projections.WishListStateProjection(w.user.id, " +
+            "w.productBitmapVersion, w.productBitmap) from WishList w")
+    List<WishListStateProjection> findAllStates();
 }
@@ -0,0 +1,24 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.analytics.CompressedBitmap;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+
+public interface BackInStockService {
+
+    /**
+     * A user's wishlist was written: its users are told when one of these products is restocked
+     * @param version the bitmap version stored with the wishlist, states older than the last applied are ignored
+     */
+    void wishListChanged(Long userId, long version, CompressedBitmap productIds);
+
+    /**
+     * The product went from out of stock to available: notify its subscribers once the current transaction commits
+     */
+    void productRestocked(ProductDTO product);
+
+    /**
+     * Recompute the product to subscriber index from the wishlist tables
+     */
+    void rebuild();
+
+}
@@ -2,10 +2,25 @@ package com.alten.ecommerce.services;
 
 import com.alten.ecommerce.models.dtos.CartDTO;
 import com.alten.ecommerce.models.dtos.CartItemDTO;
+import com.alten.ecommerce.models.dtos.CartRevalidationDTO;
+
+import java.util.Set;
 
 public interface CartService {
 
     CartDTO getCart(String email);
 
     CartDTO addItemToCart(String email, CartItemDTO cartItemDTO);
+
+    /**
+     * Check every line of the user's cart against the current price and stock of its product
+     */
+    CartRevalidationDTO revalidateCart(String email);
+
+    /**
+     * Carts with state not yet in the database, which the sweeper must leave alone
+     */
+    default Set<Long> heldCartIds() {
+        return Set.of();
+    }
 }
@@ -0,0 +1,11 @@
+package com.alten.ecommerce.services;
+
+public interface CartSweepService {
+
+    /**
+     * Delete empty and abandoned carts, archiving the lines of abandoned ones
+     * @return the number of carts deleted
+     */
+    int sweep();
+
+}
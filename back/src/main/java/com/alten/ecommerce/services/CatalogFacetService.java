@@ -0,0 +1,13 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.models.dtos.CatalogTotalsDTO;
+import com.alten.ecommerce.models.dtos.FacetCountsDTO;
+import com.alten.ecommerce.models.dtos.FacetFilterDTO;
+
+public interface CatalogFacetService {
+
+    FacetCountsDTO getFacets(FacetFilterDTO filter);
+
+    CatalogTotalsDTO getTotals();
+
+}
@@ -0,0 +1,17 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.models.dtos.CatalogQueryDTO;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface CatalogQueryService {
+
+    /**
+     * Filter, sort and take the top products, evaluated on the in-memory columnar index
+     */
+    @Transactional(readOnly = true)
+    List<ProductDTO> query(CatalogQueryDTO query);
+
+}
@@ -0,0 +1,22 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.models.dtos.CatalogManifestDTO;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface CatalogSnapshotService {
+
+    /**
+     * @return the manifest of the latest snapshot, empty until the first one is written
+     */
+    Optional<CatalogManifestDTO> getManifest();
+
+    /**
+     * Locate a snapshot file, recent superseded versions stay available for clients still downloading them
+     * @param version snapshot version from the manifest
+     * @param gzip true for the gzip encoded file
+     */
+    Optional<Path> resolve(String version, boolean gzip);
+
+}
@@ -0,0 +1,20 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.models.dtos.StoredImageDTO;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface ImageStorageService {
+
+    StoredImageDTO store(MultipartFile file);
+
+    /**
+     * Locate a stored image or thumbnail by the file name used in its URL
+     */
+    Optional<Path> resolve(String name);
+
+    String contentType(String name);
+
+}
@@ -5,7 +5,9 @@ import com.alten.ecommerce.models.dtos.ProductDTO;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ProductService {
 
@@ -18,10 +20,29 @@ public interface ProductService {
 
     void deleteProduct(Long id);
 
+    ProductDTO updateProductImage(Long id, String image);
+
+    @Transactional(readOnly = true)
+    boolean productExists(Long id);
+
     @Transactional(readOnly = true)
     List<ProductDTO> getProductsByCategory(String category);
 
     @Transactional(readOnly = true)
     ProductDTO getProductById(Long id);
 
+    /**
+     * Several products in one query, in no particular order; ids with no product are left out
+     */
+    @Transactional(readOnly = true)
+    List<ProductDTO> getProductsByIds(Collection<Long> ids);
+
+    /**
+     * Sparse fieldset listing, only the requested fields (plus id) are selected and returned
+     * @param fields comma separated ProductDTO field names
+     * @param category category name, or null for all products
+     */
+    @Transactional(readOnly = true)
+    List<Map<String, Object>> getProductFields(String fields, String category);
+
 }
@@ -0,0 +1,28 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ProductStatsService {
+
+    /**
+     * Count a product page view, in memory until the next flush
+     */
+    void recordView(Long productId);
+
+    /**
+     * Count an add-to-cart, in memory until the next flush
+     */
+    void recordCartAdd(Long productId);
+
+    /**
+     * Write the pending counts to product_stats
+     */
+    void flush();
+
+    @Transactional(readOnly = true)
+    List<ProductDTO> getProductsByPopularity();
+
+}
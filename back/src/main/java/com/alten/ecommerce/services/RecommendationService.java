@@ -0,0 +1,34 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.models.dtos.RecommendedProductDTO;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RecommendationService {
+
+    /**
+     * A product was added to a cart or wishlist, counted once the current transaction commits
+     * @param others the products already in that cart or wishlist
+     */
+    void productAdded(Long productId, Collection<Long> others);
+
+    /**
+     * A product was removed from a cart or wishlist, counted once the current transaction commits
+     * @param remaining the products still in that cart or wishlist
+     */
+    void productRemoved(Long productId, Collection<Long> remaining);
+
+    /**
+     * Recompute the co-occurrence counts from the cart and wishlist tables
+     */
+    void rebuild();
+
+    /**
+     * "Users who wishlisted this also liked": products most often in the same carts and wishlists
+     */
+    @Transactional(readOnly = true)
+    List<RecommendedProductDTO> getRecommendations(Long productId, int limit);
+
+}
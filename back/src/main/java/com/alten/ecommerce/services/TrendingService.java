@@ -0,0 +1,24 @@
+package com.alten.ecommerce.services;
+
+import com.alten.ecommerce.models.TrendingWindow;
+import com.alten.ecommerce.models.dtos.TrendingProductDTO;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface TrendingService {
+
+    /**
+     * Count a cart or wishlist add of a product in every window
+     */
+    void recordActivity(Long productId);
+
+    /**
+     * @param window the time window to rank over
+     * @param limit  maximum number of products
+     * @return the most active products of the window, most active first
+     */
+    @Transactional(readOnly = true)
+    List<TrendingProductDTO> getTrending(TrendingWindow window, int limit);
+
+}
@@ -3,6 +3,9 @@ package com.alten.ecommerce.services;
 import com.alten.ecommerce.models.dtos.WishListDTO;
 import com.alten.ecommerce.models.dtos.WishListItemDTO;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface WishListService {
 
     WishListDTO addItemToWishList(String email, WishListItemDTO itemDTO);
@@ -11,4 +14,10 @@ public interface WishListService {
 
     WishListDTO removeItemFromWishList(String email, Long itemId);
 
+    /**
+     * Which of these products are in the user's wishlist, for flagging a product listing
+     * @return the wishlisted ids among productIds, ascending
+     */
+    List<Long> findWishListed(String email, Collection<Long> productIds);
+
 }
@@ -0,0 +1,266 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.analytics.CompressedBitmap;
+import com.alten.ecommerce.cache.CacheInvalidationEvent;
+import com.alten.ecommerce.cache.InvalidationBus;
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.projections.WishListStateProjection;
+import com.alten.ecommerce.models.projections.WishListSubscriptionProjection;
+import com.alten.ecommerce.notifications.BackInStockNotification;
+import com.alten.ecommerce.notifications.NotificationSink;
+import com.alten.ecommerce.ratelimit.TokenBucket;
+import com.alten.ecommerce.repositories.UserRepository;
+import com.alten.ecommerce.repositories.WishListRepository;
+import com.alten.ecommerce.services.BackInStockService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Back-in-stock notifications from an in-memory reverse index: product id to a {@link CompressedBitmap} of the ids of
+ * the users holding it in their wishlist, so a restock never scans wishlist_items. The index is fed whole wishlist
+ * states tagged with the bitmap version stored on the row: the writing node passes its own after commit, the other
+ * nodes read the row on the write's wishlist invalidation, and an older version never replaces a newer one.
+ * Every node can then fan out any restock. A periodic rebuild from the tables corrects any drift; the states applied
+ * while it reads are applied again to the rebuilt index before it is swapped in.
+ * <p>
+ * A restock is split into batches of subscribers, each a job on a bounded pool. Jobs resolve their users' emails
+ * with one query and deliver through the {@link NotificationSink}, paced by a token bucket shared by all workers.
+ * When the queue is full the batch is dropped and logged rather than run on the caller's thread.
+ */
+@Service
+@Slf4j
+public class BackInStockServiceImpl implements BackInStockService {
+
+    private final WishListRepository wishListRepository;
+    private final UserRepository userRepository;
+    private final NotificationSink notificationSink;
+    private final int batchSize;
+    private final TokenBucket rateLimit;
+    private final Duration shutdownTimeout;
+    private final ThreadPoolExecutor executor;
+
+    // Index writes, the swap and the replay list are guarded by the lock; fan-outs read the index without it
+    private final Object lock = new Object();
+    private volatile Index index = new Index();
+    private List<WishListState> appliedDuringRebuild;
+
+    @Autowired
+    public BackInStockServiceImpl(WishListRepository wishListRepository, UserRepository userRepository,
+                                  NotificationSink notificationSink,
+                                  @Value("${app.notifications.back-in-stock.batch-size:500}") int batchSize,
+                                  @Value("${app.notifications.back-in-stock.rate-per-second:200}") int ratePerSecond,
+                                  @Value("${app.notifications.back-in-stock.threads:2}") int threads,
+                                  @Value("${app.notifications.back-in-stock.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${app.notifications.back-in-stock.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.wishListRepository = wishListRepository;
+        this.userRepository = userRepository;
+        this.notificationSink = notificationSink;
+        this.batchSize = batchSize;
+        this.rateLimit = new TokenBucket(ratePerSecond, TimeUnit.SECONDS.toNanos(1), System.nanoTime());
+        this.shutdownTimeout = shutdownTimeout;
+        AtomicInteger workers = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "back-in-stock-" + workers.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public void wishListChanged(Long userId, long version, CompressedBitmap productIds) {
+        WishListState state = new WishListState(userId, version, productIds);
+        synchronized (lock) {
+            index.apply(state);
+            if (appliedDuringRebuild != null) {
+                appliedDuringRebuild.add(state);
+            }
+        }
+    }
+
+    /**
+     * Wishlist writes on other nodes, read back from the row: an invalidation is only published once the row is
+     * committed, and it is delivered inside the poll's transaction, which sees that commit
+     */
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.entityType() != CacheInvalidationEvent.EntityType.WISHLIST || event.local()) {
+            return;
+        }
+        wishListRepository.findStateByUserEmail(event.entityKey())
+                .filter(state -> state.productBitmap() != null)
+                .ifPresent(state -> wishListChanged(state.userId(), state.version(),
+                        CompressedBitmap.deserialize(state.productBitmap())));
+    }
+
+    @Override
+    public void productRestocked(ProductDTO product) {
+        InvalidationBus.afterCommit(() -> fanOut(product));
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.notifications.back-in-stock.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${app.notifications.back-in-stock.rebuild-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (lock) {
+            appliedDuringRebuild = new ArrayList<>();
+        }
+        Index rebuilt = new Index();
+        try {
+            List<WishListStateProjection> states = wishListRepository.findAllStates();
+            // Rows never written since the bitmap column was added only have their items
+            Map<Long, CompressedBitmap> legacy = new HashMap<>();
+            if (states.stream().anyMatch(state -> state.productBitmap() == null)) {
+                for (WishListSubscriptionProjection subscription : wishListRepository.findAllSubscriptions()) {
+                    legacy.computeIfAbsent(subscription.userId(), id -> new CompressedBitmap()).add(subscription.productId());
+                }
+            }
+            for (WishListStateProjection state : states) {
+                CompressedBitmap productIds = state.productBitmap() != null
+                        ? CompressedBitmap.deserialize(state.productBitmap())
+                        : legacy.getOrDefault(state.userId(), new CompressedBitmap());
+                rebuilt.apply(new WishListState(state.userId(), state.version(), productIds));
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                appliedDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            // States the read may or may not have seen: applying them again is harmless, versions decide
+            appliedDuringRebuild.forEach(rebuilt::apply);
+            index = rebuilt;
+            appliedDuringRebuild = null;
+        }
+        log.info("Back-in-stock index rebuilt for {} products in {} ms", rebuilt.subscribers.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            synchronized (lock) {
+                index.subscribers.remove(event.productId());
+            }
+        }
+    }
+
+    /**
+     * Let the queued batches finish for up to {@code shutdown-timeout}, then interrupt the workers
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            List<Runnable> dropped = executor.shutdownNow();
+            log.warn("Back-in-stock notifications still pending at shutdown, dropped {} queued batches", dropped.size());
+        }
+    }
+
+    private void fanOut(ProductDTO product) {
+        CompressedBitmap users = index.subscribers.get(product.id());
+        if (users == null) {
+            return;
+        }
+        long[] userIds;
+        synchronized (users) {
+            userIds = users.toArray();
+        }
+        for (int from = 0; from < userIds.length; from += batchSize) {
+            List<Long> batch = Arrays.stream(userIds, from, Math.min(from + batchSize, userIds.length)).boxed().toList();
+            try {
+                executor.execute(() -> notify(product, batch));
+            } catch (RejectedExecutionException e) {
+                log.warn("Notification queue full, dropped back-in-stock notifications of product {} for {} users",
+                        product.id(), userIds.length - from);
+                return;
+            }
+        }
+        log.info("Product {} is back in stock, notifying {} users", product.id(), userIds.length);
+    }
+
+    private void notify(ProductDTO product, List<Long> userIds) {
+        try {
+            Instant now = Instant.now();
+            for (String email : userRepository.findEmailsByIdIn(userIds)) {
+                long waitNanos;
+                while ((waitNanos = rateLimit.tryAcquire(System.nanoTime())) > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
+                notificationSink.deliver(new BackInStockNotification(email, product.id(), product.name(), now));
+            }
+        } catch (RuntimeException e) {
+            log.error("Back-in-stock notification batch of product {} failed", product.id(), e);
+        }
+    }
+
+    private record WishListState(Long userId, long version, CompressedBitmap productIds) {
+    }
+
+    /**
+     * Subscribers per product, and the last state applied per user to diff the next one against
+     */
+    private static final class Index {
+
+        private final Map<Long, CompressedBitmap> subscribers = new ConcurrentHashMap<>();
+        private final Map<Long, WishListState> wishLists = new HashMap<>();
+
+        void apply(WishListState state) {
+            WishListState previous = wishLists.get(state.userId());
+            if (previous != null && previous.version() >= state.version()) {
+                return;
+            }
+            wishLists.put(state.userId(), state);
+            if (previous != null) {
+                for (long productId : previous.productIds().toArray()) {
+                    CompressedBitmap users = subscribers.get(productId);
+                    if (users != null && !state.productIds().contains(productId)) {
+                        // Fan-outs copy the bitmap under its monitor
+                        synchronized (users) {
+                            users.remove(state.userId());
+                        }
+                    }
+                }
+            }
+            for (long productId : state.productIds().toArray()) {
+                if (previous == null || !previous.productIds().contains(productId)) {
+                    CompressedBitmap users = subscribers.computeIfAbsent(productId, id -> new CompressedBitmap());
+                    synchronized (users) {
+                        users.add(state.userId());
+                    }
+                }
+            }
+        }
+    }
+}
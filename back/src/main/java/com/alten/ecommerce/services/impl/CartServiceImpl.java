@@ -1,43 +1,59 @@
 package com.alten.ecommerce.services.impl;
 
+import com.alten.ecommerce.cache.InvalidationBus;
 import com.alten.ecommerce.models.Cart;
 import com.alten.ecommerce.models.CartItem;
 import com.alten.ecommerce.models.Product;
 import com.alten.ecommerce.models.User;
 import com.alten.ecommerce.models.dtos.CartDTO;
 import com.alten.ecommerce.models.dtos.CartItemDTO;
+import com.alten.ecommerce.models.dtos.CartRevalidationDTO;
+import com.alten.ecommerce.models.projections.CartLineProjection;
 import com.alten.ecommerce.repositories.CartRepository;
 import com.alten.ecommerce.repositories.ProductRepository;
 import com.alten.ecommerce.repositories.UserRepository;
 import com.alten.ecommerce.services.CartService;
+import com.alten.ecommerce.services.ProductStatsService;
+import com.alten.ecommerce.services.RecommendationService;
+import com.alten.ecommerce.services.TrendingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @Transactional
+@ConditionalOnProperty(name = "app.cart.engine", havingValue = "jpa", matchIfMissing = true)
 public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductStatsService productStatsService;
+    private final TrendingService trendingService;
+    private final RecommendationService recommendationService;
 
     @Autowired
-    public CartServiceImpl(CartRepository cartRepository, ProductRepository productRepository, UserRepository userRepository) {
+    public CartServiceImpl(CartRepository cartRepository, ProductRepository productRepository, UserRepository userRepository,
+                           ProductStatsService productStatsService, TrendingService trendingService,
+                           RecommendationService recommendationService) {
         this.cartRepository = cartRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.productStatsService = productStatsService;
+        this.trendingService = trendingService;
+        this.recommendationService = recommendationService;
     }
 
     @Override
     public CartDTO addItemToCart(String email, CartItemDTO cartItemDTO) {
 
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + email));
-
         Product product = productRepository.findById(cartItemDTO.productId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + cartItemDTO.productId()));
 
@@ -45,47 +61,78 @@ public class CartServiceImpl implements CartService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock for product: " + product.getName());
         }
 
-        Cart cart = cartRepository.findByUser_Email(email)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    return cartRepository.save(newCart);
-                });
+        // Touching the cart locks it against the sweeper and keeps it from counting as abandoned
+        Long cartId = cartRepository.findIdByUserEmail(email).orElse(null);
+        if (cartId == null || !cartRepository.touch(cartId)) {
+            cartId = createCart(email).getId();
+        }
 
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getProduct().getId().equals(cartItemDTO.productId()))
+        // The cart stays locked until commit, so its lines cannot change between this read and the add
+        List<CartLineProjection> lines = cartRepository.findLinesByUserEmail(email);
+        Integer current = lines.stream()
+                .filter(line -> product.getId().equals(line.productId()))
+                .map(CartLineProjection::quantity)
                 .findFirst()
-                .orElseGet(() -> {
-                    CartItem newItem = new CartItem();
-                    newItem.setCart(cart);
-                    newItem.setProduct(product);
-                    cart.getItems().add(newItem);
-                    return newItem;
-                });
-
-        item.setQuantity(item.getQuantity() + cartItemDTO.quantity());
-        cartRepository.save(cart);
-
-        return new CartDTO(cart.getId(), cart.getItems().stream()
-                .map(i -> new CartItemDTO(i.getProduct().getId(), i.getQuantity()))
-                .toList());
+                .orElse(null);
+        int quantity = (current == null ? 0 : current) + cartItemDTO.quantity();
+        if (quantity > CartItem.MAX_QUANTITY) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity cannot exceed " + CartItem.MAX_QUANTITY);
+        }
+
+        // One UPDATE, or an INSERT for a new line
+        cartRepository.addToLine(cartId, product.getId(), cartItemDTO.quantity(), product.getPrice());
+        List<CartItemDTO> items = new ArrayList<>();
+        for (CartLineProjection line : lines) {
+            if (line.productId() != null) {
+                items.add(new CartItemDTO(line.productId(),
+                        line.productId().equals(product.getId()) ? quantity : line.quantity()));
+            }
+        }
+        // Counted once the add commits, a rolled back one is neither popular nor trending
+        InvalidationBus.afterCommit(() -> {
+            productStatsService.recordCartAdd(product.getId());
+            trendingService.recordActivity(product.getId());
+        });
+        if (current == null) {
+            items.add(new CartItemDTO(product.getId(), quantity));
+            recommendationService.productAdded(product.getId(), items.stream().map(CartItemDTO::productId).toList());
+        }
+
+        return new CartDTO(cartId, items);
     }
 
+    /**
+     * A user without a cart gets an empty one with no id; it is only created by the first add
+     */
     @Override
+    @Transactional(readOnly = true)
     public CartDTO getCart(String email) {
 
+        List<CartLineProjection> lines = cartRepository.findLinesByUserEmail(email);
+        if (lines.isEmpty()) {
+            return new CartDTO(null, List.of());
+        }
+        return toDTO(lines.getFirst().cartId(), lines);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartRevalidationDTO revalidateCart(String email) {
+        return CartRevalidationDTO.fromLines(cartRepository.checkLines(email));
+    }
+
+    private Cart createCart(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + email));
+        Cart newCart = new Cart();
+        newCart.setUser(user);
+        return cartRepository.save(newCart);
+    }
 
-        Cart cart = cartRepository.findByUser_Email(email)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    return cartRepository.save(newCart);
-                });
-
-        return new CartDTO(cart.getId(), cart.getItems().stream()
-                .map(i -> new CartItemDTO(i.getProduct().getId(), i.getQuantity()))
+    private static CartDTO toDTO(Long cartId, List<CartLineProjection> lines) {
+        return new CartDTO(cartId, lines.stream()
+                .filter(line -> line.productId() != null)
+                .map(line -> new CartItemDTO(line.productId(), line.quantity()))
                 .toList());
     }
 }
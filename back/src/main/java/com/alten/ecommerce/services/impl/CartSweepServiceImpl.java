@@ -0,0 +1,130 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.events.CartsSweptEvent;
+import com.alten.ecommerce.repositories.CartRepository;
+import com.alten.ecommerce.services.CartService;
+import com.alten.ecommerce.services.CartSweepService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes carts that stayed empty for {@code empty-after} and any cart left untouched for {@code abandoned-after},
+ * in batches of {@code batch-size}. Each batch is its own short transaction locking only the carts it deletes;
+ * batches are spaced by {@code pause} and a run stops after {@code max-batches}, the next one carrying on.
+ * The default schedule runs at night, off-peak. Runs take their own thread, so the pauses never hold up the
+ * shared scheduler, and a trigger arriving while a run is still going is dropped.
+ * Carts the cart engine holds in memory on this node are skipped; a write-behind node holding a swept cart with
+ * unsaved lines moves them to a new cart on its next flush.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cart.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class CartSweepServiceImpl implements CartSweepService {
+
+    private final CartRepository cartRepository;
+    private final CartService cartService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration emptyAfter;
+    private final Duration abandonedAfter;
+    private final int batchSize;
+    private final Duration pause;
+    private final int maxBatches;
+    private final boolean archive;
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "cart-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    @Autowired
+    public CartSweepServiceImpl(CartRepository cartRepository, CartService cartService,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.cart.sweeper.empty-after:1d}") Duration emptyAfter,
+                                @Value("${app.cart.sweeper.abandoned-after:30d}") Duration abandonedAfter,
+                                @Value("${app.cart.sweeper.batch-size:500}") int batchSize,
+                                @Value("${app.cart.sweeper.pause:200ms}") Duration pause,
+                                @Value("${app.cart.sweeper.max-batches:200}") int maxBatches,
+                                @Value("${app.cart.sweeper.archive:true}") boolean archive) {
+        if (emptyAfter.compareTo(abandonedAfter) > 0) {
+            throw new IllegalArgumentException("app.cart.sweeper.empty-after cannot exceed abandoned-after");
+        }
+        this.cartRepository = cartRepository;
+        this.cartService = cartService;
+        this.eventPublisher = eventPublisher;
+        this.emptyAfter = emptyAfter;
+        this.abandonedAfter = abandonedAfter;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.maxBatches = maxBatches;
+        this.archive = archive;
+    }
+
+    @Scheduled(cron = "${app.cart.sweeper.cron:0 */15 1-5 * * *}")
+    public void scheduleSweep() {
+        executor.execute(this::sweep);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupts the pause between batches, the batch in progress still commits
+        executor.shutdownNow();
+    }
+
+    @Override
+    public int sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime emptyBefore = now.minus(emptyAfter);
+        LocalDateTime abandonedBefore = now.minus(abandonedAfter);
+        long start = System.nanoTime();
+        long afterId = 0;
+        int swept = 0;
+
+        for (int batch = 0; batch < maxBatches; batch++) {
+            // Read without locks; the sweep re-checks each cart once it holds its lock
+            List<Long> candidates = cartRepository.findSweepCandidates(afterId, emptyBefore, abandonedBefore, batchSize);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            afterId = candidates.getLast();
+            Set<Long> held = cartService.heldCartIds();
+            List<Long> deleted = cartRepository.sweep(candidates.stream().filter(id -> !held.contains(id)).toList(),
+                    emptyBefore, abandonedBefore, archive);
+            if (!deleted.isEmpty()) {
+                swept += deleted.size();
+                eventPublisher.publishEvent(new CartsSweptEvent(deleted));
+            }
+            if (candidates.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+        if (swept > 0) {
+            log.info("Swept {} empty or abandoned carts in {} ms", swept, (System.nanoTime() - start) / 1_000_000);
+        }
+        return swept;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.cache.CacheInvalidationEvent;
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.CatalogTotalsDTO;
+import com.alten.ecommerce.models.dtos.FacetCountsDTO;
+import com.alten.ecommerce.models.dtos.FacetFilterDTO;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.projections.ProductFacetProjection;
+import com.alten.ecommerce.repositories.ProductRepository;
+import com.alten.ecommerce.services.CatalogFacetService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps facet counts in memory. The index is seeded with one projection query at startup and then
+ * maintained from {@link ProductChangedEvent}s (and invalidations from other nodes), so facet requests never
+ * touch the products table.
+ * Unfiltered requests read the running counters, filtered ones scan the in-memory entries. The counters are
+ * updated and read under the instance monitor, so a response never mixes the counts of two updates.
+ */
+@Service
+@Slf4j
+public class CatalogFacetServiceImpl implements CatalogFacetService {
+
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            BigDecimal.valueOf(10), BigDecimal.valueOf(50), BigDecimal.valueOf(100), BigDecimal.valueOf(500)
+    };
+    private static final String[] PRICE_BUCKETS = {"0-10", "10-50", "50-100", "100-500", "500+"};
+    private static final String UNRATED = "unrated";
+    private static final String[] RATING_BANDS = {"0-1", "1-2", "2-3", "3-4", "4-5", UNRATED};
+
+    private final ProductRepository productRepository;
+
+    private final Map<Long, FacetEntry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> categoryCounts = new ConcurrentHashMap<>();
+    private final Map<InventoryStatus, Long> statusCounts = new ConcurrentHashMap<>();
+    private final Map<String, Long> priceBucketCounts = new ConcurrentHashMap<>();
+    private final Map<String, Long> ratingBandCounts = new ConcurrentHashMap<>();
+    private final Map<String, BigDecimal> valueByCategory = new ConcurrentHashMap<>();
+    private volatile long totalUnits;
+    private volatile BigDecimal inventoryValue = BigDecimal.ZERO;
+
+    @Autowired
+    public CatalogFacetServiceImpl(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void load() {
+        entries.clear();
+        categoryCounts.clear();
+        statusCounts.clear();
+        priceBucketCounts.clear();
+        ratingBandCounts.clear();
+        valueByCategory.clear();
+        totalUnits = 0;
+        inventoryValue = BigDecimal.ZERO;
+
+        productRepository.findAllFacetProjections().forEach(projection -> put(FacetEntry.of(projection)));
+        log.info("Catalog facet index loaded with {} products", entries.size());
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            remove(event.productId());
+        } else {
+            put(FacetEntry.of(event.after()));
+        }
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(CacheInvalidationEvent event) {
+        if (event.local() || event.entityType() != CacheInvalidationEvent.EntityType.PRODUCT) {
+            return;
+        }
+        Long id = Long.valueOf(event.entityKey());
+        productRepository.findFacetProjectionById(id)
+                .ifPresentOrElse(projection -> put(FacetEntry.of(projection)), () -> remove(id));
+    }
+
+    @Override
+    public FacetCountsDTO getFacets(FacetFilterDTO filter) {
+        if (filter == null || isEmpty(filter)) {
+            return countedFacets();
+        }
+
+        long total = 0;
+        Map<String, Long> categories = new TreeMap<>();
+        Map<InventoryStatus, Long> statuses = new EnumMap<>(InventoryStatus.class);
+        Map<String, Long> priceBuckets = ordered(PRICE_BUCKETS, Map.of());
+        Map<String, Long> ratingBands = ordered(RATING_BANDS, Map.of());
+
+        for (FacetEntry entry : entries.values()) {
+            boolean categoryMatch = filter.category() == null || filter.category().equalsIgnoreCase(entry.category());
+            boolean statusMatch = filter.inventoryStatus() == null || filter.inventoryStatus() == entry.inventoryStatus();
+            boolean priceMatch = (filter.minPrice() == null || entry.price().compareTo(filter.minPrice()) >= 0)
+                    && (filter.maxPrice() == null || entry.price().compareTo(filter.maxPrice()) <= 0);
+            boolean ratingMatch = filter.minRating() == null
+                    || (entry.rating() != null && entry.rating().compareTo(filter.minRating()) >= 0);
+
+            // A facet counts an entry when every other dimension matches
+            if (statusMatch && priceMatch && ratingMatch) {
+                categories.merge(entry.category(), 1L, Long::sum);
+            }
+            if (categoryMatch && priceMatch && ratingMatch) {
+                statuses.merge(entry.inventoryStatus(), 1L, Long::sum);
+            }
+            if (categoryMatch && statusMatch && ratingMatch) {
+                priceBuckets.merge(entry.priceBucket(), 1L, Long::sum);
+            }
+            if (categoryMatch && statusMatch && priceMatch) {
+                ratingBands.merge(entry.ratingBand(), 1L, Long::sum);
+            }
+            if (categoryMatch && statusMatch && priceMatch && ratingMatch) {
+                total++;
+            }
+        }
+
+        return new FacetCountsDTO(total, categories, statuses, priceBuckets, ratingBands);
+    }
+
+    @Override
+    @PreAuthorize("authentication.principal.username == 'admin@admin.com'")
+    public synchronized CatalogTotalsDTO getTotals() {
+        return new CatalogTotalsDTO(entries.size(), totalUnits, inventoryValue, new TreeMap<>(valueByCategory));
+    }
+
+    private synchronized FacetCountsDTO countedFacets() {
+        Map<InventoryStatus, Long> statuses = new EnumMap<>(InventoryStatus.class);
+        statuses.putAll(statusCounts);
+        return new FacetCountsDTO(
+                entries.size(),
+                new TreeMap<>(categoryCounts),
+                statuses,
+                ordered(PRICE_BUCKETS, priceBucketCounts),
+                ordered(RATING_BANDS, ratingBandCounts)
+        );
+    }
+
+    private synchronized void put(FacetEntry entry) {
+        FacetEntry previous = entries.put(entry.id(), entry);
+        if (previous != null) {
+            count(previous, -1);
+        }
+        count(entry, 1);
+    }
+
+    private synchronized void remove(Long id) {
+        FacetEntry previous = entries.remove(id);
+        if (previous != null) {
+            count(previous, -1);
+        }
+    }
+
+    private void count(FacetEntry entry, int sign) {
+        adjust(categoryCounts, entry.category(), sign);
+        adjust(statusCounts, entry.inventoryStatus(), sign);
+        adjust(priceBucketCounts, entry.priceBucket(), sign);
+        adjust(ratingBandCounts, entry.ratingBand(), sign);
+
+        BigDecimal value = sign > 0 ? entry.value() : entry.value().negate();
+        // A category is listed as long as it has products, even when they are all out of stock
+        valueByCategory.compute(entry.category(), (category, current) -> !categoryCounts.containsKey(category)
+                ? null
+                : current == null ? value : current.add(value));
+        totalUnits += (long) sign * entry.quantity();
+        inventoryValue = inventoryValue.add(value);
+    }
+
+    private static <K> void adjust(Map<K, Long> counts, K key, int delta) {
+        counts.compute(key, (k, current) -> {
+            long next = (current == null ? 0 : current) + delta;
+            return next == 0 ? null : next;
+        });
+    }
+
+    private static Map<String, Long> ordered(String[] labels, Map<String, Long> counts) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (String label : labels) {
+            result.put(label, counts.getOrDefault(label, 0L));
+        }
+        return result;
+    }
+
+    private static boolean isEmpty(FacetFilterDTO filter) {
+        return filter.category() == null && filter.inventoryStatus() == null
+                && filter.minPrice() == null && filter.maxPrice() == null && filter.minRating() == null;
+    }
+
+    private record FacetEntry(
+            Long id,
+            String category,
+            InventoryStatus inventoryStatus,
+            BigDecimal price,
+            BigDecimal rating,
+            int quantity,
+            String priceBucket,
+            String ratingBand,
+            BigDecimal value
+    ) {
+        static FacetEntry of(ProductFacetProjection projection) {
+            int quantity = projection.quantity() != null ? projection.quantity() : 0;
+            return new FacetEntry(
+                    projection.id(),
+                    projection.category(),
+                    projection.inventoryStatus(),
+                    projection.price(),
+                    projection.rating(),
+                    quantity,
+                    priceBucket(projection.price()),
+                    ratingBand(projection.rating()),
+                    projection.price().multiply(BigDecimal.valueOf(quantity))
+            );
+        }
+
+        static FacetEntry of(ProductDTO product) {
+            return of(new ProductFacetProjection(product.id(), product.category(), product.inventoryStatus(),
+                    product.price(), product.rating(), product.quantity()));
+        }
+
+        private static String priceBucket(BigDecimal price) {
+            for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+                if (price.compareTo(PRICE_BOUNDS[i]) < 0) {
+                    return PRICE_BUCKETS[i];
+                }
+            }
+            return PRICE_BUCKETS[PRICE_BUCKETS.length - 1];
+        }
+
+        private static String ratingBand(BigDecimal rating) {
+            if (rating == null) {
+                return UNRATED;
+            }
+            // 5.0 belongs to the top band, the last label is reserved for unrated products
+            return RATING_BANDS[Math.min(rating.intValue(), RATING_BANDS.length - 2)];
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.analytics.ColumnarCatalogIndex;
+import com.alten.ecommerce.cache.CacheInvalidationEvent;
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.Product;
+import com.alten.ecommerce.models.dtos.CatalogQueryDTO;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.projections.ProductFacetProjection;
+import com.alten.ecommerce.repositories.ProductRepository;
+import com.alten.ecommerce.services.CatalogQueryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Answers catalog filter and sort queries from a {@link ColumnarCatalogIndex}, maintained like the facet index:
+ * seeded with one projection query at startup, then kept current from product events and remote invalidations.
+ * Only the selected page of products is loaded from the database.
+ */
+@Service
+@Slf4j
+public class CatalogQueryServiceImpl implements CatalogQueryService {
+
+    private final ProductRepository productRepository;
+    private final int maxLimit;
+    private final ColumnarCatalogIndex index = new ColumnarCatalogIndex();
+
+    @Autowired
+    public CatalogQueryServiceImpl(ProductRepository productRepository,
+                                   @Value("${app.catalog.query.max-limit:100}") int maxLimit) {
+        this.productRepository = productRepository;
+        this.maxLimit = maxLimit;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void load() {
+        index.clear();
+        productRepository.findAllFacetProjections().forEach(this::put);
+        log.info("Columnar catalog index loaded with {} products", index.size());
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            index.remove(event.productId());
+        } else {
+            ProductDTO product = event.after();
+            index.put(product.id(), product.category(), product.inventoryStatus(), product.price(),
+                    product.rating(), product.quantity());
+        }
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(CacheInvalidationEvent event) {
+        if (event.local() || event.entityType() != CacheInvalidationEvent.EntityType.PRODUCT) {
+            return;
+        }
+        Long id = Long.valueOf(event.entityKey());
+        productRepository.findFacetProjectionById(id)
+                .ifPresentOrElse(this::put, () -> index.remove(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductDTO> query(CatalogQueryDTO query) {
+        if (query.limit() < 1 || query.limit() > maxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("Limit must be between 1 and %d", maxLimit));
+        }
+        if (query.direction() != null && query.sort() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A direction requires a sort");
+        }
+
+        long[] ids = index.query(
+                new ColumnarCatalogIndex.Filter(query.category(), query.inventoryStatus(), query.minPrice(),
+                        query.maxPrice(), query.minRating(), query.minQuantity()),
+                query.sort(),
+                query.direction() == Sort.Direction.DESC,
+                query.limit());
+
+        Map<Long, Product> products = productRepository.findByIdIn(Arrays.stream(ids).boxed().toList()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return Arrays.stream(ids)
+                .filter(products::containsKey)
+                .mapToObj(id -> ProductDTO.fromEntity(products.get(id)))
+                .toList();
+    }
+
+    private void put(ProductFacetProjection projection) {
+        index.put(projection.id(), projection.category(), projection.inventoryStatus(), projection.price(),
+                projection.rating(), projection.quantity());
+    }
+}
@@ -0,0 +1,224 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.cache.CacheInvalidationEvent;
+import com.alten.ecommerce.cache.ProductJsonCache;
+import com.alten.ecommerce.models.dtos.CatalogManifestDTO;
+import com.alten.ecommerce.services.CatalogSnapshotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Materializes the full product listing as static files, {@code catalog-<version>.json} and its gzip encoding,
+ * named after a hash of the content so every node produces the same URL for the same catalog.
+ * Changes are debounced: a rebuild runs once writes have been quiet for the debounce period,
+ * or at the latest max-delay after the first pending change.
+ */
+@Service
+@Slf4j
+public class CatalogSnapshotServiceImpl implements CatalogSnapshotService {
+
+    private static final Pattern VERSION = Pattern.compile("[0-9a-f]{16}");
+    private static final Pattern FILE = Pattern.compile("catalog-([0-9a-f]{16})\\.json(\\.gz)?");
+    // Magic, deflate, no flags, no modification time, maximum compression, unknown OS
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 2, (byte) 0xff};
+
+    private final ProductJsonCache productJsonCache;
+    private final Path root;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final int retain;
+
+    private volatile CatalogManifestDTO manifest;
+    // 0 when the snapshot is up to date, only ever set from 0 by compare-and-set so the first change wins
+    private final AtomicLong firstChangeAt = new AtomicLong();
+    private volatile long lastChangeAt;
+
+    @Autowired
+    public CatalogSnapshotServiceImpl(ProductJsonCache productJsonCache,
+                                      @Value("${app.catalog.snapshot.root:./data/catalog}") Path root,
+                                      @Value("${app.catalog.snapshot.debounce:2s}") Duration debounce,
+                                      @Value("${app.catalog.snapshot.max-delay:30s}") Duration maxDelay,
+                                      @Value("${app.catalog.snapshot.retain:3}") int retain) {
+        this.productJsonCache = productJsonCache;
+        this.root = root.toAbsolutePath().normalize();
+        this.debounceMillis = debounce.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.retain = retain;
+    }
+
+    @Override
+    public Optional<CatalogManifestDTO> getManifest() {
+        return Optional.ofNullable(manifest);
+    }
+
+    @Override
+    public Optional<Path> resolve(String version, boolean gzip) {
+        if (!VERSION.matcher(version).matches()) {
+            return Optional.empty();
+        }
+        Path path = root.resolve(fileName(version, gzip));
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (!event.entityType().catalog()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastChangeAt = now;
+        firstChangeAt.compareAndSet(0, now);
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.snapshot.check-interval-ms:500}")
+    public void rebuildIfChanged() {
+        long first = firstChangeAt.get();
+        long now = System.currentTimeMillis();
+        if (first != 0 && (now - lastChangeAt >= debounceMillis || now - first >= maxDelayMillis)) {
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        // Cleared before reading so that a change landing during the build schedules another one
+        firstChangeAt.set(0);
+        try {
+            byte[] json = productJsonCache.getAllProducts().json();
+            String version = version(json);
+            CatalogManifestDTO current = manifest;
+            if (current != null && current.version().equals(version)) {
+                return;
+            }
+
+            Files.createDirectories(root);
+            write(fileName(version, false), json);
+            byte[] gzipped = gzip(json);
+            write(fileName(version, true), gzipped);
+
+            manifest = new CatalogManifestDTO(version, "/api/catalog/snapshots/" + version + ".json",
+                    json.length, gzipped.length, System.currentTimeMillis());
+            log.info("Catalog snapshot {} written ({} bytes, {} gzipped)", version, json.length, gzipped.length);
+            prune(version);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not write the catalog snapshot, retrying on the next check", e);
+            firstChangeAt.compareAndSet(0, System.currentTimeMillis());
+        }
+    }
+
+    private void write(String name, byte[] bytes) throws IOException {
+        Path target = root.resolve(name);
+        if (Files.exists(target)) {
+            // Same content as an earlier version, only refresh its age so pruning keeps it
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return;
+        }
+        Path temp = Files.createTempFile(root, name, ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Keep the current version and the most recent superseded ones, older files are deleted
+     */
+    private void prune(String current) throws IOException {
+        List<Path> superseded;
+        try (Stream<Path> files = Files.list(root)) {
+            superseded = files
+                    .filter(path -> {
+                        Matcher matcher = FILE.matcher(path.getFileName().toString());
+                        return matcher.matches() && matcher.group(2) == null && !matcher.group(1).equals(current);
+                    })
+                    .sorted(Comparator.comparing(CatalogSnapshotServiceImpl::lastModified).reversed())
+                    .toList();
+        }
+        for (Path path : superseded.stream().skip(Math.max(0, retain - 1)).toList()) {
+            String name = path.getFileName().toString();
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(root.resolve(name + ".gz"));
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String fileName(String version, boolean gzip) {
+        return "catalog-" + version + ".json" + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * Written once and served many times, so the slowest compression level pays off. GZIPOutputStream cannot be
+     * given a level, so the gzip header and trailer (RFC 1952) are written around a raw deflate stream instead.
+     */
+    private static byte[] gzip(byte[] json) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + GZIP_HEADER.length + 8);
+            out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            byte[] trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt((int) crc.getValue())
+                    .putInt(json.length)
+                    .array();
+            out.write(trailer, 0, trailer.length);
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String version(byte[] json) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.models.dtos.StoredImageDTO;
+import com.alten.ecommerce.services.ImageStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image store on the local disk. Files are named after the SHA-256 of the original upload,
+ * so identical uploads are stored once and a URL never changes content. Thumbnails are generated at upload.
+ * The dimensions are read from the image header first, so an image that would decode to more than
+ * {@code app.images.max-pixels} is rejected before its pixels are allocated.
+ */
+@Service
+@Slf4j
+public class ImageStorageServiceImpl implements ImageStorageService {
+
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{64}(-w\\d{1,4})?\\.(png|jpg|gif)");
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "gif", "image/gif"
+    );
+
+    private final Path root;
+    private final List<Integer> thumbnailWidths;
+    private final long maxPixels;
+
+    @Autowired
+    public ImageStorageServiceImpl(@Value("${app.images.root:./data/images}") Path root,
+                                   @Value("${app.images.thumbnail-widths:200,400}") List<Integer> thumbnailWidths,
+                                   @Value("${app.images.max-pixels:25000000}") long maxPixels) {
+        this.root = root.toAbsolutePath().normalize();
+        this.thumbnailWidths = thumbnailWidths;
+        this.maxPixels = maxPixels;
+    }
+
+    @Override
+    @PreAuthorize("authentication.principal.username == 'admin@admin.com'")
+    public StoredImageDTO store(MultipartFile file) {
+        try {
+            byte[] bytes = file.getBytes();
+            Decoded decoded = decode(bytes, file.getOriginalFilename());
+            String extension = decoded.extension();
+            BufferedImage image = decoded.image();
+            String hash = sha256(bytes);
+
+            String name = hash + "." + extension;
+            write(name, bytes);
+
+            Map<Integer, String> thumbnails = new LinkedHashMap<>();
+            for (int width : thumbnailWidths) {
+                String thumbnailName = thumbnail(hash, image, width);
+                thumbnails.put(width, "/api/images/" + thumbnailName);
+            }
+
+            return new StoredImageDTO(hash, "/api/images/" + name, CONTENT_TYPES.get(extension), bytes.length, thumbnails);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store image " + file.getOriginalFilename(), e);
+        }
+    }
+
+    @Override
+    public Optional<Path> resolve(String name) {
+        if (!NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+        Path path = shard(name);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public String contentType(String name) {
+        return CONTENT_TYPES.getOrDefault(name.substring(name.lastIndexOf('.') + 1), "application/octet-stream");
+    }
+
+    private String thumbnail(String hash, BufferedImage image, int width) throws IOException {
+        boolean alpha = image.getColorModel().hasAlpha();
+        String extension = alpha ? "png" : "jpg";
+        String name = hash + "-w" + width + "." + extension;
+        if (Files.exists(shard(name))) {
+            return name;
+        }
+
+        // Never upscale: small originals get a same-size re-encode
+        int targetWidth = Math.min(width, image.getWidth());
+        int targetHeight = Math.max(1, Math.round((float) image.getHeight() * targetWidth / image.getWidth()));
+        BufferedImage resized = new BufferedImage(targetWidth, targetHeight,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(resized, alpha ? "png" : "jpeg", out);
+        write(name, out.toByteArray());
+        return name;
+    }
+
+    private void write(String name, byte[] bytes) throws IOException {
+        Path target = shard(name);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), name, ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            log.debug("Image {} was stored concurrently", name);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path shard(String name) {
+        return root.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    /**
+     * Decode the first frame of the image with the reader for its format, once its header shows the size is allowed
+     */
+    private Decoded decode(byte[] bytes, String fileName) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            ImageReader reader = readers.hasNext() ? readers.next() : null;
+            String extension = switch (reader == null ? "" : reader.getFormatName().toLowerCase()) {
+                case "png" -> "png";
+                case "jpeg", "jpg" -> "jpg";
+                case "gif" -> "gif";
+                default -> throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                        "Only PNG, JPEG and GIF images are supported");
+            };
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                            String.format("Image has %d pixels, at most %d are allowed", pixels, maxPixels));
+                }
+                return new Decoded(extension, reader.read(0));
+            } catch (IIOException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unreadable image: " + fileName, e);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private record Decoded(String extension, BufferedImage image) {}
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.alten.ecommerce.services.impl;
 
+import com.alten.ecommerce.events.ProductChangedEvent;
 import com.alten.ecommerce.models.Category;
 import com.alten.ecommerce.models.InventoryStatus;
 import com.alten.ecommerce.models.Product;
 import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.projections.ProductField;
 import com.alten.ecommerce.repositories.ProductRepository;
 import com.alten.ecommerce.repositories.CategoryRepository;
+import com.alten.ecommerce.services.BackInStockService;
 import com.alten.ecommerce.services.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -15,8 +19,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -24,11 +32,16 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BackInStockService backInStockService;
 
     @Autowired
-    public ProductServiceImpl(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public ProductServiceImpl(ProductRepository productRepository, CategoryRepository categoryRepository,
+                              ApplicationEventPublisher eventPublisher, BackInStockService backInStockService) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.backInStockService = backInStockService;
     }
 
     @Transactional(readOnly = true)
@@ -37,7 +50,7 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findAll()
                 .stream()
                 .map(ProductDTO::fromEntity)
-                .collect(Collectors.toList());
+                .toList();
     }
 
     @Override
@@ -54,7 +67,7 @@ public class ProductServiceImpl implements ProductService {
 
         // Find category by name
         Category category = categoryRepository.findByNameIgnoreCase(productDTO.category())
-                .orElse(categoryRepository
+                .orElseGet(() -> categoryRepository
                         .save(new Category(productDTO.category())));
 
         Product product = new Product();
@@ -64,7 +77,9 @@ public class ProductServiceImpl implements ProductService {
 
         Product saved = productRepository.save(product);
 
-        return ProductDTO.fromEntity(saved);
+        ProductDTO created = ProductDTO.fromEntity(saved);
+        eventPublisher.publishEvent(ProductChangedEvent.created(created));
+        return created;
     }
 
     @PreAuthorize("authentication.principal.username == 'admin@admin.com'")
@@ -92,10 +107,44 @@ public class ProductServiceImpl implements ProductService {
                         String.format("Category with name %s not found", productDTO.category())
                 ));
 
+        ProductDTO before = ProductDTO.fromEntity(existingProduct);
         getProductFromDTO(existingProduct, productDTO, category);
         existingProduct.setUpdatedAt(LocalDateTime.now());
         Product updatedProduct = productRepository.save(existingProduct);
-        return ProductDTO.fromEntity(updatedProduct);
+
+        ProductDTO updated = ProductDTO.fromEntity(updatedProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(before, updated));
+        if (!isAvailable(before) && isAvailable(updated)) {
+            backInStockService.productRestocked(updated);
+        }
+        return updated;
+    }
+
+    /**
+     * In stock and flagged as such: a restock needs both a quantity and a status other than out of stock
+     */
+    private static boolean isAvailable(ProductDTO product) {
+        return product.quantity() != null && product.quantity() > 0
+                && product.inventoryStatus() != InventoryStatus.OUTOFSTOCK;
+    }
+
+    @PreAuthorize("authentication.principal.username == 'admin@admin.com'")
+    @Override
+    public ProductDTO updateProductImage(Long id, String image) {
+        Product existingProduct = productRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        String.format("Product with ID %d not found", id)
+                ));
+
+        ProductDTO before = ProductDTO.fromEntity(existingProduct);
+        existingProduct.setImage(image);
+        existingProduct.setUpdatedAt(LocalDateTime.now());
+        Product updatedProduct = productRepository.save(existingProduct);
+
+        ProductDTO updated = ProductDTO.fromEntity(updatedProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(before, updated));
+        return updated;
     }
 
     private static void getProductFromDTO(Product product, ProductDTO productDTO, Category category) {
@@ -115,29 +164,36 @@ public class ProductServiceImpl implements ProductService {
     @PreAuthorize("authentication.principal.username == 'admin@admin.com'")
     @Override
     public void deleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND,
-                    String.format("Product with ID %d not found", id)
-            );
-        }
-        productRepository.deleteById(id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        String.format("Product with ID %d not found", id)
+                ));
+        ProductDTO deleted = ProductDTO.fromEntity(product);
+        productRepository.delete(product);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(deleted));
     }
 
     @Transactional(readOnly = true)
     @Override
     public List<ProductDTO> getProductsByCategory(String category) {
-        // Find category by name
-        categoryRepository.findByNameIgnoreCase(category)
+        // Find category by name, then list its products by the stored name so any case variant gets them
+        Category found = categoryRepository.findByNameIgnoreCase(category)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.BAD_REQUEST,
                         String.format("Category with name %s not found", category)
                 ));
 
-        return productRepository.findByCategory_Name(category)
+        return productRepository.findByCategory_Name(found.getName())
                 .stream()
                 .map(ProductDTO::fromEntity)
-                .collect(Collectors.toList());
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public boolean productExists(Long id) {
+        return productRepository.existsById(id);
     }
 
     @Transactional(readOnly = true)
@@ -151,4 +207,38 @@ public class ProductServiceImpl implements ProductService {
         return ProductDTO.fromEntity(product);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<ProductDTO> getProductsByIds(Collection<Long> ids) {
+        return productRepository.findByIdIn(ids)
+                .stream()
+                .map(ProductDTO::fromEntity)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Map<String, Object>> getProductFields(String fields, String category) {
+        Set<ProductField> selected = new LinkedHashSet<>();
+        selected.add(ProductField.ID);
+        Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(name -> selected.add(ProductField.fromName(name)
+                        .orElseThrow(() -> new ResponseStatusException(
+                                HttpStatus.BAD_REQUEST,
+                                String.format("Unknown product field %s", name)
+                        ))));
+
+        if (category != null) {
+            categoryRepository.findByNameIgnoreCase(category)
+                    .orElseThrow(() -> new ResponseStatusException(
+                            HttpStatus.BAD_REQUEST,
+                            String.format("Category with name %s not found", category)
+                    ));
+        }
+
+        return productRepository.findFields(selected, category);
+    }
+
 }
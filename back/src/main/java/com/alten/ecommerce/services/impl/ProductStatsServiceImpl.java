@@ -0,0 +1,123 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.repositories.ProductRepository;
+import com.alten.ecommerce.repositories.ProductStatsRepository;
+import com.alten.ecommerce.repositories.ProductStatsRepositoryCustom.Delta;
+import com.alten.ecommerce.services.ProductStatsService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Popularity counters kept as striped {@link LongAdder}s per product, so concurrent increments on a hot product
+ * neither contend nor allocate once its counters exist. Deltas are flushed to product_stats on a fixed delay,
+ * which bounds what a crash can lose to one flush interval; a failed flush puts its deltas back.
+ */
+@Service
+@Slf4j
+public class ProductStatsServiceImpl implements ProductStatsService {
+
+    private final ProductStatsRepository productStatsRepository;
+    private final ProductRepository productRepository;
+    private final long cartAddWeight;
+    private final int batchSize;
+
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductStatsServiceImpl(ProductStatsRepository productStatsRepository, ProductRepository productRepository,
+                                   @Value("${app.popularity.cart-add-weight:5}") long cartAddWeight,
+                                   @Value("${app.popularity.batch-size:500}") int batchSize) {
+        this.productStatsRepository = productStatsRepository;
+        this.productRepository = productRepository;
+        this.cartAddWeight = cartAddWeight;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void recordView(Long productId) {
+        counters(productId).views.increment();
+    }
+
+    @Override
+    public void recordCartAdd(Long productId) {
+        counters(productId).cartAdds.increment();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.popularity.flush-interval-ms:5000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Delta> batch = new ArrayList<>(batchSize);
+        for (Map.Entry<Long, Counters> entry : counters.entrySet()) {
+            // Subtracting what was read, rather than resetting, keeps increments that land while we read
+            Counters counter = entry.getValue();
+            long views = counter.views.sum();
+            long cartAdds = counter.cartAdds.sum();
+            if (views == 0 && cartAdds == 0) {
+                continue;
+            }
+            counter.views.add(-views);
+            counter.cartAdds.add(-cartAdds);
+            batch.add(new Delta(entry.getKey(), views, cartAdds));
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductDTO> getProductsByPopularity() {
+        return productRepository.findAllOrderByPopularity(cartAddWeight).stream()
+                .map(ProductDTO::fromEntity)
+                .toList();
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            counters.remove(event.productId());
+        }
+    }
+
+    private void write(List<Delta> batch) {
+        try {
+            productStatsRepository.addCounts(batch);
+        } catch (RuntimeException e) {
+            log.warn("Could not flush {} product stats, keeping them for the next flush", batch.size(), e);
+            for (Delta delta : batch) {
+                Counters counter = counters(delta.productId());
+                counter.views.add(delta.views());
+                counter.cartAdds.add(delta.cartAdds());
+            }
+        }
+    }
+
+    private Counters counters(Long productId) {
+        Counters counter = counters.get(productId);
+        return counter != null ? counter : counters.computeIfAbsent(productId, id -> new Counters());
+    }
+
+    private static final class Counters {
+        private final LongAdder views = new LongAdder();
+        private final LongAdder cartAdds = new LongAdder();
+    }
+}
@@ -0,0 +1,176 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.analytics.CoOccurrenceMatrix;
+import com.alten.ecommerce.cache.InvalidationBus;
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.Product;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.dtos.RecommendedProductDTO;
+import com.alten.ecommerce.models.projections.BasketItemProjection;
+import com.alten.ecommerce.repositories.CartRepository;
+import com.alten.ecommerce.repositories.ProductRepository;
+import com.alten.ecommerce.repositories.WishListRepository;
+import com.alten.ecommerce.services.RecommendationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Item-to-item recommendations from an in-memory {@link CoOccurrenceMatrix}. Cart and wishlist changes update
+ * it incrementally once their transaction commits; a periodic rebuild from the tables, spread over the common
+ * fork-join pool, corrects any drift (changes made by other nodes).
+ * <p>
+ * Changes applied while a rebuild reads the tables are logged and applied again to the new matrix before it is
+ * swapped in. The log starts right before the rebuild's first read, which takes its snapshot, so only a change
+ * committing in between is counted twice, until the next rebuild.
+ */
+@Service
+@Slf4j
+public class RecommendationServiceImpl implements RecommendationService {
+
+    private final CartRepository cartRepository;
+    private final WishListRepository wishListRepository;
+    private final ProductRepository productRepository;
+    private final int maxSize;
+
+    private volatile CoOccurrenceMatrix matrix = new CoOccurrenceMatrix();
+    // Changes share the read lock; starting the log and swapping the matrix take the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Queue<Consumer<CoOccurrenceMatrix>> appliedDuringRebuild;
+
+    @Autowired
+    public RecommendationServiceImpl(CartRepository cartRepository, WishListRepository wishListRepository,
+                                     ProductRepository productRepository,
+                                     @Value("${app.recommendations.max-size:50}") int maxSize) {
+        this.cartRepository = cartRepository;
+        this.wishListRepository = wishListRepository;
+        this.productRepository = productRepository;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public void productAdded(Long productId, Collection<Long> others) {
+        long[] basket = others.stream().mapToLong(Long::longValue).toArray();
+        InvalidationBus.afterCommit(() -> apply(target -> target.added(productId, basket)));
+    }
+
+    @Override
+    public void productRemoved(Long productId, Collection<Long> remaining) {
+        long[] basket = remaining.stream().mapToLong(Long::longValue).toArray();
+        InvalidationBus.afterCommit(() -> apply(target -> target.removed(productId, basket)));
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.recommendations.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${app.recommendations.rebuild-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            appliedDuringRebuild = new ConcurrentLinkedQueue<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<long[]> baskets = new ArrayList<>();
+        CoOccurrenceMatrix rebuilt;
+        try {
+            group(cartRepository.findAllBasketItems(), baskets);
+            group(wishListRepository.findAllBasketItems(), baskets);
+            rebuilt = CoOccurrenceMatrix.build(baskets, ForkJoinPool.commonPool());
+        } catch (RuntimeException e) {
+            appliedDuringRebuild = null;
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            appliedDuringRebuild.forEach(change -> change.accept(rebuilt));
+            matrix = rebuilt;
+            appliedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Co-occurrence matrix rebuilt from {} baskets in {} ms", baskets.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecommendedProductDTO> getRecommendations(Long productId, int limit) {
+        if (limit < 1 || limit > maxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("Limit must be between 1 and %d", maxSize));
+        }
+
+        List<CoOccurrenceMatrix.Neighbour> neighbours = matrix.topNeighbours(productId, limit);
+        Map<Long, Product> products = productRepository.findByIdIn(neighbours.stream().map(CoOccurrenceMatrix.Neighbour::productId).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return neighbours.stream()
+                .filter(neighbour -> products.containsKey(neighbour.productId()))
+                .map(neighbour -> new RecommendedProductDTO(ProductDTO.fromEntity(products.get(neighbour.productId())), neighbour.count()))
+                .toList();
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            apply(target -> target.removeProduct(event.productId()));
+        }
+    }
+
+    private void apply(Consumer<CoOccurrenceMatrix> change) {
+        lock.readLock().lock();
+        try {
+            change.accept(matrix);
+            Queue<Consumer<CoOccurrenceMatrix>> pending = appliedDuringRebuild;
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Turn (basket, product) rows sorted by basket into one product array per basket
+     */
+    private static void group(List<BasketItemProjection> items, List<long[]> baskets) {
+        int i = 0;
+        while (i < items.size()) {
+            Long basketId = items.get(i).basketId();
+            int end = i;
+            while (end < items.size() && items.get(end).basketId().equals(basketId)) {
+                end++;
+            }
+            long[] basket = new long[end - i];
+            for (int j = i; j < end; j++) {
+                basket[j - i] = items.get(j).productId();
+            }
+            baskets.add(basket);
+            i = end;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.analytics.SlidingWindowTopK;
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.Product;
+import com.alten.ecommerce.models.TrendingWindow;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.dtos.TrendingProductDTO;
+import com.alten.ecommerce.repositories.ProductRepository;
+import com.alten.ecommerce.services.TrendingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Trending products from cart and wishlist adds, counted in memory per window by {@link SlidingWindowTopK}.
+ * Each node ranks the activity it served, which under load balancing is a fair sample of the whole traffic.
+ */
+@Service
+public class TrendingServiceImpl implements TrendingService {
+
+    private final ProductRepository productRepository;
+    private final int maxSize;
+    private final Map<TrendingWindow, SlidingWindowTopK> windows = new EnumMap<>(TrendingWindow.class);
+
+    @Autowired
+    public TrendingServiceImpl(ProductRepository productRepository,
+                               @Value("${app.trending.max-size:50}") int maxSize) {
+        this.productRepository = productRepository;
+        this.maxSize = maxSize;
+        long now = System.currentTimeMillis();
+        for (TrendingWindow window : TrendingWindow.values()) {
+            windows.put(window, new SlidingWindowTopK(window.getBucketCount(), window.getBucketWidth().toMillis(), maxSize, now));
+        }
+    }
+
+    @Override
+    public void recordActivity(Long productId) {
+        long now = System.currentTimeMillis();
+        windows.values().forEach(window -> window.record(productId, now));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TrendingProductDTO> getTrending(TrendingWindow window, int limit) {
+        if (limit < 1 || limit > maxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("Limit must be between 1 and %d", maxSize));
+        }
+
+        List<SlidingWindowTopK.Ranked> ranking = windows.get(window).top(limit);
+        Map<Long, Product> products = productRepository.findByIdIn(ranking.stream().map(SlidingWindowTopK.Ranked::productId).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return ranking.stream()
+                .filter(ranked -> products.containsKey(ranked.productId()))
+                .map(ranked -> new TrendingProductDTO(ProductDTO.fromEntity(products.get(ranked.productId())), ranked.count()))
+                .toList();
+    }
+
+    /**
+     * Expire old buckets even when no activity is recorded, and publish the rankings changed since the last tick
+     */
+    @Scheduled(fixedDelayString = "${app.trending.tick-interval-ms:10000}")
+    public void advance() {
+        long now = System.currentTimeMillis();
+        windows.values().forEach(window -> window.advance(now));
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            windows.values().forEach(window -> window.remove(event.productId()));
+        }
+    }
+}
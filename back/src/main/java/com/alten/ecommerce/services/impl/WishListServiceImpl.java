@@ -1,61 +1,92 @@
 package com.alten.ecommerce.services.impl;
 
+import com.alten.ecommerce.analytics.CompressedBitmap;
+import com.alten.ecommerce.cache.CacheInvalidationEvent;
+import com.alten.ecommerce.cache.InvalidationBus;
+import com.alten.ecommerce.cache.WishListBitmapCache;
 import com.alten.ecommerce.models.Product;
 import com.alten.ecommerce.models.User;
 import com.alten.ecommerce.models.WishList;
-import com.alten.ecommerce.models.WishListItem;
 import com.alten.ecommerce.models.dtos.WishListDTO;
 import com.alten.ecommerce.models.dtos.WishListItemDTO;
 import com.alten.ecommerce.repositories.ProductRepository;
 import com.alten.ecommerce.repositories.UserRepository;
+import com.alten.ecommerce.repositories.WishListItemRepository;
 import com.alten.ecommerce.repositories.WishListRepository;
+import com.alten.ecommerce.services.BackInStockService;
+import com.alten.ecommerce.services.RecommendationService;
+import com.alten.ecommerce.services.TrendingService;
 import com.alten.ecommerce.services.WishListService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Wishlists are read through a compressed bitmap of their product ids, stored on the wishlist row and cached
+ * per user, so duplicate checks and "in wishlist" flags never load the items. Writers lock the wishlist row,
+ * update the items and the bitmap together, and publish the new bitmap to the cache and the back-in-stock index
+ * after commit; other nodes pick it up from the wishlist invalidation committed with it.
+ */
 @Service
 @Transactional
 public class WishListServiceImpl implements WishListService {
 
     private final WishListRepository wishListRepository;
+    private final WishListItemRepository wishListItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final TrendingService trendingService;
+    private final RecommendationService recommendationService;
+    private final WishListBitmapCache wishListBitmapCache;
+    private final BackInStockService backInStockService;
+    private final InvalidationBus invalidationBus;
 
     @Autowired
-    public WishListServiceImpl(WishListRepository wishListRepository, ProductRepository productRepository, UserRepository userRepository) {
+    public WishListServiceImpl(WishListRepository wishListRepository, WishListItemRepository wishListItemRepository,
+                               ProductRepository productRepository, UserRepository userRepository,
+                               TrendingService trendingService, RecommendationService recommendationService,
+                               WishListBitmapCache wishListBitmapCache, BackInStockService backInStockService,
+                               InvalidationBus invalidationBus) {
         this.wishListRepository = wishListRepository;
+        this.wishListItemRepository = wishListItemRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.trendingService = trendingService;
+        this.recommendationService = recommendationService;
+        this.wishListBitmapCache = wishListBitmapCache;
+        this.backInStockService = backInStockService;
+        this.invalidationBus = invalidationBus;
     }
 
     @Override
     public WishListDTO addItemToWishList(String email, WishListItemDTO itemDTO) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found: " + email));
-
-        Product product = productRepository.findById(itemDTO.productId())
-                .orElseThrow(() -> new RuntimeException("Product not found: " + itemDTO.productId()));
-
-        WishList wishList = getWishList(user);
-
-        // Check if item already exists
-        if (wishList.getItems().stream().anyMatch(i -> i.getProduct().getId().equals(itemDTO.productId()))) {
+        Long productId = itemDTO.productId();
+        // Duplicates are only decided under the lock: the cache may still hold a product another node just removed
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
+
+        WishList wishList = lockWishList(email);
+        CompressedBitmap bitmap = storedBitmap(wishList);
+        if (bitmap.contains(productId)) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Product already in wishlist: " + product.getName());
         }
+        List<Long> others = toList(bitmap);
 
-        WishListItem item = new WishListItem();
-        item.setWishList(wishList);
-        item.setProduct(product);
-        wishList.getItems().add(item);
-        wishListRepository.save(wishList);
+        if (!wishListItemRepository.insertItem(wishList.getId(), productId)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Product already in wishlist: " + product.getName());
+        }
+        bitmap.add(productId);
+        store(email, wishList, bitmap);
+        InvalidationBus.afterCommit(() -> trendingService.recordActivity(productId));
+        recommendationService.productAdded(productId, others);
 
-        return new WishListDTO(wishList.getId(), wishList.getItems().stream()
-                .map(i -> i.getProduct().getId())
-                .toList());
+        return new WishListDTO(wishList.getId(), toList(bitmap));
     }
 
     private WishList getWishList(User user) {
@@ -67,34 +98,107 @@ public class WishListServiceImpl implements WishListService {
                 });
     }
 
+    /**
+     * A user without a wishlist gets an empty one with no id; it is only created by the first add
+     */
     @Override
+    @Transactional(readOnly = true)
     public WishListDTO getWishList(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found: " + email));
+        WishListBitmapCache.Entry entry = bitmap(email);
+        if (entry == null) {
+            return new WishListDTO(null, List.of());
+        }
+        return new WishListDTO(entry.wishListId(), toList(entry.bitmap()));
+    }
 
-        WishList wishList = getWishList(user);
+    public WishListDTO removeItemFromWishList(String email, Long itemId) {
+        WishList wishList = lockWishList(email);
+        Long productId = wishListItemRepository.findProductId(itemId, wishList.getId())
+                .orElseThrow(() -> new RuntimeException("Wishlist item not found: " + itemId));
 
-        return new WishListDTO(wishList.getId(), wishList.getItems().stream()
-                .map(i -> i.getProduct().getId())
-                .toList());
+        CompressedBitmap bitmap = storedBitmap(wishList);
+        wishListItemRepository.deleteItem(itemId, wishList.getId());
+        bitmap.remove(productId);
+        store(email, wishList, bitmap);
+        List<Long> remaining = toList(bitmap);
+        recommendationService.productRemoved(productId, remaining);
+
+        return new WishListDTO(wishList.getId(), remaining);
     }
 
-    public WishListDTO removeItemFromWishList(String email, Long itemId) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found: " + email));
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findWishListed(String email, Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            if (productId == null || productId < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid product id: " + productId);
+            }
+        }
+        WishListBitmapCache.Entry entry = bitmap(email);
+        if (entry == null) {
+            return List.of();
+        }
+        return toList(entry.bitmap().and(CompressedBitmap.of(productIds)));
+    }
 
-        WishList wishList = getWishList(user);
+    /**
+     * The user's cached bitmap, loaded from the wishlist row on a miss; null when the user has no wishlist
+     */
+    private WishListBitmapCache.Entry bitmap(String email) {
+        WishListBitmapCache.Entry cached = wishListBitmapCache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = wishListBitmapCache.generation();
+        return wishListRepository.findByUser_Email(email)
+                .map(wishList -> cache(email, wishList, generation))
+                .orElse(null);
+    }
 
-        WishListItem item = wishList.getItems().stream()
-                .filter(i -> i.getId().equals(itemId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Wishlist item not found: " + itemId));
+    private WishListBitmapCache.Entry cache(String email, WishList wishList, long generation) {
+        WishListBitmapCache.Entry entry = new WishListBitmapCache.Entry(wishList.getId(),
+                wishList.getProductBitmapVersion(), storedBitmap(wishList));
+        // Published after commit like the writers' puts, so it never races ahead of a newer version
+        InvalidationBus.afterCommit(() -> wishListBitmapCache.putLoaded(email, entry, generation));
+        return entry;
+    }
+
+    private WishList lockWishList(String email) {
+        return wishListRepository.findForUpdateByUserEmail(email)
+                .orElseGet(() -> {
+                    User user = userRepository.findByEmail(email)
+                            .orElseThrow(() -> new RuntimeException("User not found: " + email));
+                    return getWishList(user);
+                });
+    }
 
-        wishList.getItems().remove(item);
-        wishListRepository.save(wishList);
+    /**
+     * A private copy of the bitmap stored on the row, rebuilt from the items when the row predates the column
+     */
+    private CompressedBitmap storedBitmap(WishList wishList) {
+        if (wishList.getProductBitmap() != null) {
+            return CompressedBitmap.deserialize(wishList.getProductBitmap());
+        }
+        if (wishList.getId() == null) {
+            return new CompressedBitmap();
+        }
+        return CompressedBitmap.of(wishListItemRepository.findProductIdsByWishListId(wishList.getId()));
+    }
+
+    private void store(String email, WishList wishList, CompressedBitmap bitmap) {
+        wishList.setProductBitmap(bitmap.serialize());
+        wishList.setProductBitmapVersion(wishList.getProductBitmapVersion() + 1);
+        WishListBitmapCache.Entry entry = new WishListBitmapCache.Entry(wishList.getId(),
+                wishList.getProductBitmapVersion(), bitmap);
+        Long userId = wishList.getUser().getId();
+        InvalidationBus.afterCommit(() -> {
+            wishListBitmapCache.put(email, entry);
+            backInStockService.wishListChanged(userId, entry.version(), bitmap);
+        });
+        invalidationBus.publish(CacheInvalidationEvent.EntityType.WISHLIST, email);
+    }
 
-        return new WishListDTO(wishList.getId(), wishList.getItems().stream()
-                .map(i -> i.getProduct().getId())
-                .toList());
+    private static List<Long> toList(CompressedBitmap bitmap) {
+        return Arrays.stream(bitmap.toArray()).boxed().toList();
     }
 }
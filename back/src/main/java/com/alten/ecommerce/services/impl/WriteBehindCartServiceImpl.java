@@ -0,0 +1,492 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.cache.OffHeapProductStore;
+import com.alten.ecommerce.cache.ProductRecord;
+import com.alten.ecommerce.events.CartsSweptEvent;
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.journal.JournalRecord;
+import com.alten.ecommerce.journal.MutationJournal;
+import com.alten.ecommerce.models.Cart;
+import com.alten.ecommerce.models.CartItem;
+import com.alten.ecommerce.models.Product;
+import com.alten.ecommerce.models.User;
+import com.alten.ecommerce.models.dtos.CartDTO;
+import com.alten.ecommerce.models.dtos.CartItemDTO;
+import com.alten.ecommerce.models.dtos.CartRevalidationDTO;
+import com.alten.ecommerce.models.projections.CartLineProjection;
+import com.alten.ecommerce.repositories.CartRepository;
+import com.alten.ecommerce.repositories.CartRepositoryCustom.LineChange;
+import com.alten.ecommerce.repositories.ProductRepository;
+import com.alten.ecommerce.repositories.UserRepository;
+import com.alten.ecommerce.services.CartService;
+import com.alten.ecommerce.services.ProductStatsService;
+import com.alten.ecommerce.services.RecommendationService;
+import com.alten.ecommerce.services.TrendingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Cart engine for {@code app.cart.engine=write-behind}: active carts live in memory, keyed by user, as immutable
+ * snapshots swapped with compare-and-set, so concurrent mutations of one cart retry instead of locking.
+ * A cart is loaded from the database on first use; changed carts are written back in batches every flush interval,
+ * or as soon as {@code max-dirty-carts} carts are pending, so a crash loses at most that much.
+ * Clean carts idle for longer than {@code idle-timeout} are dropped from memory.
+ * <p>
+ * With the {@link MutationJournal} enabled every mutation is journaled before it is acknowledged, and each flush
+ * checkpoints the journal; records past the checkpoint are written to the tables on startup. A cart's
+ * mutation and its record are then ordered under the cart's monitor, so replaying the records in sequence
+ * order ends on the cart's last state.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cart.engine", havingValue = "write-behind")
+@Slf4j
+public class WriteBehindCartServiceImpl implements CartService {
+
+    private final CartRepository cartRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final OffHeapProductStore productStore;
+    private final ProductStatsService productStatsService;
+    private final TrendingService trendingService;
+    private final RecommendationService recommendationService;
+    private final MutationJournal journal;
+    private final int maxDirtyCarts;
+    private final long idleTimeoutMillis;
+
+    private final Map<String, CartState> carts = new ConcurrentHashMap<>();
+    private final AtomicInteger dirtyCarts = new AtomicInteger();
+
+    @Autowired
+    public WriteBehindCartServiceImpl(CartRepository cartRepository, ProductRepository productRepository,
+                                      UserRepository userRepository, OffHeapProductStore productStore,
+                                      ProductStatsService productStatsService, TrendingService trendingService,
+                                      RecommendationService recommendationService, Optional<MutationJournal> journal,
+                                      @Value("${app.cart.write-behind.max-dirty-carts:1000}") int maxDirtyCarts,
+                                      @Value("${app.cart.write-behind.idle-timeout:30m}") Duration idleTimeout) {
+        this.cartRepository = cartRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.productStore = productStore;
+        this.productStatsService = productStatsService;
+        this.trendingService = trendingService;
+        this.recommendationService = recommendationService;
+        this.journal = journal.orElse(null);
+        this.maxDirtyCarts = maxDirtyCarts;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+    }
+
+    @Override
+    public CartDTO addItemToCart(String email, CartItemDTO cartItemDTO) {
+        Long productId = cartItemDTO.productId();
+        BigDecimal price = checkStock(productId, cartItemDTO.quantity());
+
+        while (true) {
+            CartState state = state(email);
+            CartSnapshot snapshot = state.current.get();
+            if (snapshot.evicted()) {
+                carts.remove(email, state);
+                continue;
+            }
+
+            int quantity = snapshot.items().getOrDefault(productId, 0) + cartItemDTO.quantity();
+            if (quantity > CartItem.MAX_QUANTITY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Quantity cannot exceed " + CartItem.MAX_QUANTITY);
+            }
+            Map<Long, Integer> items = new LinkedHashMap<>(snapshot.items());
+            boolean newItem = items.put(productId, quantity) == null;
+            CartSnapshot next = snapshot.with(items);
+            // Set before the snapshot is published, so a flush writing this quantity also sees its price
+            state.prices.put(productId, price);
+            if (!apply(state, snapshot, next, productId, quantity)) {
+                continue;
+            }
+
+            state.lastAccess = System.currentTimeMillis();
+            productStatsService.recordCartAdd(productId);
+            trendingService.recordActivity(productId);
+            if (newItem) {
+                recommendationService.productAdded(productId, items.keySet());
+            }
+            if (state.persisted.version() == snapshot.version() && dirtyCarts.incrementAndGet() >= maxDirtyCarts) {
+                flush();
+            }
+            return toDTO(state, next);
+        }
+    }
+
+    /**
+     * A user without a cart gets an empty one with no id; it is only created by the first add
+     */
+    @Override
+    public CartDTO getCart(String email) {
+        CartState state = carts.get(email);
+        if (state == null) {
+            List<CartLineProjection> lines = cartRepository.findLinesByUserEmail(email);
+            if (lines.isEmpty()) {
+                return new CartDTO(null, List.of());
+            }
+            CartState loaded = toState(lines);
+            CartState existing = carts.putIfAbsent(email, loaded);
+            state = existing != null ? existing : loaded;
+        }
+        state.lastAccess = System.currentTimeMillis();
+        return toDTO(state, state.current.get());
+    }
+
+    /**
+     * Write the journal records past the last checkpoint to the tables, before any cart is loaded
+     */
+    @PostConstruct
+    public void replayJournal() {
+        if (journal == null) {
+            return;
+        }
+        Map<List<Long>, LineChange> lines = new LinkedHashMap<>();
+        // Records hold no price: a line already written keeps the price it was added at
+        journal.replay((sequence, record) -> lines.put(List.of(record.basketId(), record.productId()),
+                new LineChange(record.basketId(), record.productId(), record.quantity(), null)));
+        if (!lines.isEmpty()) {
+            cartRepository.writeLines(new ArrayList<>(lines.values()));
+            log.info("Replayed {} cart lines from the journal", lines.size());
+        }
+        journal.checkpoint(journal.lastSequence());
+    }
+
+    /**
+     * Write every changed cart back in one batch. A failed write keeps the carts dirty for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.cart.write-behind.flush-interval-ms:1000}")
+    @PreDestroy
+    public synchronized void flush() {
+        // Every record up to here belongs to a mutation already visible in the carts collected below
+        long journaled = journal == null ? 0 : journal.lastSequence();
+        List<String> emails = new ArrayList<>();
+        List<CartState> flushed = new ArrayList<>();
+        List<CartSnapshot> snapshots = new ArrayList<>();
+        List<LineChange> changes = new ArrayList<>();
+        long idleBefore = System.currentTimeMillis() - idleTimeoutMillis;
+
+        for (Map.Entry<String, CartState> entry : carts.entrySet()) {
+            CartState state = entry.getValue();
+            CartSnapshot snapshot = state.current.get();
+            CartSnapshot persisted = state.persisted;
+            if (snapshot.version() == persisted.version()) {
+                // Clean and idle: drop it, a mutation racing with this sees the eviction and reloads
+                if (state.lastAccess < idleBefore && state.current.compareAndSet(snapshot, snapshot.evict())) {
+                    carts.remove(entry.getKey(), state);
+                }
+                continue;
+            }
+            diff(state, persisted, snapshot, changes);
+            emails.add(entry.getKey());
+            flushed.add(state);
+            snapshots.add(snapshot);
+        }
+        if (flushed.isEmpty()) {
+            checkpoint(journaled);
+            return;
+        }
+
+        Set<Long> missing;
+        try {
+            missing = changes.isEmpty() ? Set.of() : cartRepository.writeLines(changes);
+        } catch (RuntimeException e) {
+            log.warn("Could not write back {} carts, keeping them for the next flush", flushed.size(), e);
+            return;
+        }
+        for (int i = 0; i < flushed.size(); i++) {
+            if (missing.contains(flushed.get(i).cartId)) {
+                recreate(emails.get(i), flushed.get(i));
+            } else {
+                flushed.get(i).persisted = snapshots.get(i);
+            }
+        }
+        checkpoint(journaled);
+        dirtyCarts.set((int) carts.values().stream()
+                .filter(state -> state.current.get().version() != state.persisted.version())
+                .count());
+    }
+
+    /**
+     * Write this user's pending lines first, so the check sees the cart as the user does. When that write fails
+     * the check runs on the stored cart, and the lines stay pending for the next flush.
+     */
+    @Override
+    public CartRevalidationDTO revalidateCart(String email) {
+        CartState state = carts.get(email);
+        if (state != null) {
+            try {
+                flush(email, state);
+            } catch (RuntimeException e) {
+                log.warn("Could not write back cart {} before revalidating it, keeping it for the next flush",
+                        state.cartId, e);
+            }
+        }
+        return CartRevalidationDTO.fromLines(cartRepository.checkLines(email));
+    }
+
+    @Override
+    public Set<Long> heldCartIds() {
+        return carts.values().stream().map(state -> state.cartId).collect(Collectors.toSet());
+    }
+
+    /**
+     * Drop clean carts this node's sweeper deleted while they were loaded here, the next mutation creates the cart
+     * again. Carts with pending lines are kept: their flush finds the cart missing and moves the lines to a new one,
+     * as for carts swept on another node, which this event does not reach. Synchronized with the flushes.
+     */
+    @EventListener
+    public synchronized void onCartsSwept(CartsSweptEvent event) {
+        Set<Long> swept = Set.copyOf(event.cartIds());
+        carts.forEach((email, state) -> {
+            if (swept.contains(state.cartId)) {
+                CartSnapshot persisted = state.persisted;
+                if (state.current.compareAndSet(persisted, persisted.evict())) {
+                    carts.remove(email, state);
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() != ProductChangedEvent.Type.DELETED) {
+            return;
+        }
+        // The database refuses to delete a product still in a persisted cart, so only unflushed lines can hold it
+        for (CartState state : carts.values()) {
+            state.current.getAndUpdate(snapshot -> {
+                if (snapshot.evicted() || !snapshot.items().containsKey(event.productId())) {
+                    return snapshot;
+                }
+                Map<Long, Integer> items = new LinkedHashMap<>(snapshot.items());
+                items.remove(event.productId());
+                return snapshot.with(items);
+            });
+        }
+    }
+
+    /**
+     * Swap in the new snapshot; with a journal, also append its record and wait for it to be durable
+     * @return false when another mutation got there first and this one has to be retried
+     */
+    private boolean apply(CartState state, CartSnapshot snapshot, CartSnapshot next, Long productId, int quantity) {
+        if (journal == null) {
+            return state.current.compareAndSet(snapshot, next);
+        }
+        long sequence;
+        synchronized (state) {
+            if (!state.current.compareAndSet(snapshot, next)) {
+                return false;
+            }
+            sequence = journal.append(JournalRecord.cartItem(state.cartId, productId, quantity));
+        }
+        journal.sync(sequence);
+        return true;
+    }
+
+    /**
+     * Write back a single cart, outside the periodic flush. The journal is not checkpointed: other carts may
+     * still hold unflushed records.
+     */
+    private synchronized void flush(String email, CartState state) {
+        CartSnapshot snapshot = state.current.get();
+        CartSnapshot persisted = state.persisted;
+        if (snapshot.evicted() || snapshot.version() == persisted.version()) {
+            return;
+        }
+        List<LineChange> changes = new ArrayList<>();
+        diff(state, persisted, snapshot, changes);
+        if (!changes.isEmpty() && cartRepository.writeLines(changes).contains(state.cartId)) {
+            recreate(email, state);
+            flush(email, carts.get(email));
+            return;
+        }
+        state.persisted = snapshot;
+        // A mutation since the snapshot keeps the cart dirty, and it was not counted again
+        if (state.current.get().version() == snapshot.version()) {
+            dirtyCarts.decrementAndGet();
+        }
+    }
+
+    /**
+     * The cart was swept, possibly by another node, while it had pending lines here: none of them were written.
+     * Move them to a new cart, which the next flush writes. Called under the flush monitor, so neither the idle
+     * eviction nor a sweep event can drop the new cart in between.
+     */
+    private void recreate(String email, CartState state) {
+        CartSnapshot snapshot = state.current.getAndUpdate(CartSnapshot::evict);
+        carts.remove(email, state);
+        if (snapshot.evicted()) {
+            return;
+        }
+        log.warn("Cart {} was swept with unsaved lines, moving them to a new cart", state.cartId);
+        CartState recreated = state(email);
+        recreated.prices.putAll(state.prices);
+        long sequence = 0;
+        // Ordered with the new cart's other mutations and their journal records, as in apply()
+        synchronized (recreated) {
+            recreated.current.getAndUpdate(current -> {
+                Map<Long, Integer> items = new LinkedHashMap<>(current.items());
+                items.putAll(snapshot.items());
+                return current.with(items);
+            });
+            if (journal != null) {
+                for (Map.Entry<Long, Integer> item : snapshot.items().entrySet()) {
+                    sequence = journal.append(JournalRecord.cartItem(recreated.cartId, item.getKey(), item.getValue()));
+                }
+            }
+        }
+        if (journal != null) {
+            journal.sync(sequence);
+        }
+    }
+
+    /**
+     * The line changes turning the persisted snapshot into the current one: new quantities with the price of the
+     * last add, and 0 for removed lines
+     */
+    private static void diff(CartState state, CartSnapshot persisted, CartSnapshot snapshot, List<LineChange> changes) {
+        snapshot.items().forEach((productId, quantity) -> {
+            if (!quantity.equals(persisted.items().get(productId))) {
+                changes.add(new LineChange(state.cartId, productId, quantity, state.prices.get(productId)));
+            }
+        });
+        persisted.items().keySet().stream()
+                .filter(productId -> !snapshot.items().containsKey(productId))
+                .forEach(productId -> changes.add(new LineChange(state.cartId, productId, 0, null)));
+    }
+
+    private void checkpoint(long journaled) {
+        if (journal != null) {
+            journal.checkpoint(journaled);
+        }
+    }
+
+    /**
+     * @return the product's current price
+     */
+    private BigDecimal checkStock(Long productId, int quantity) {
+        ProductRecord stored = productStore.get(productId);
+        Integer stock;
+        String name;
+        BigDecimal price;
+        if (stored != null) {
+            stock = stored.quantity();
+            name = stored.name();
+            price = stored.price();
+        } else {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + productId));
+            stock = product.getQuantity();
+            name = product.getName();
+            price = product.getPrice();
+        }
+        if (stock == null || stock < quantity) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock for product: " + name);
+        }
+        return price;
+    }
+
+    private CartState state(String email) {
+        CartState state = carts.get(email);
+        if (state != null) {
+            return state;
+        }
+        // Loaded outside of the map so a slow query does not block other users' carts
+        CartState loaded = load(email);
+        CartState existing = carts.putIfAbsent(email, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private CartState load(String email) {
+        List<CartLineProjection> lines = cartRepository.findLinesByUserEmail(email);
+        if (lines.isEmpty()) {
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + email));
+            Cart cart = new Cart();
+            cart.setUser(user);
+            try {
+                return new CartState(cartRepository.save(cart).getId(), Map.of());
+            } catch (DataIntegrityViolationException e) {
+                // Created concurrently by another node or request
+                lines = cartRepository.findLinesByUserEmail(email);
+            }
+        }
+        return toState(lines);
+    }
+
+    private static CartState toState(List<CartLineProjection> lines) {
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        for (CartLineProjection line : lines) {
+            if (line.productId() != null) {
+                items.put(line.productId(), line.quantity());
+            }
+        }
+        return new CartState(lines.getFirst().cartId(), items);
+    }
+
+    private static CartDTO toDTO(CartState state, CartSnapshot snapshot) {
+        return new CartDTO(state.cartId, snapshot.items().entrySet().stream()
+                .map(item -> new CartItemDTO(item.getKey(), item.getValue()))
+                .toList());
+    }
+
+    private static final class CartState {
+        private final long cartId;
+        private final AtomicReference<CartSnapshot> current;
+        // Last snapshot written to the database, only replaced by the flush
+        private volatile CartSnapshot persisted;
+        private volatile long lastAccess = System.currentTimeMillis();
+        // Price of each product at its last add; lines loaded from the database keep theirs until re-added
+        private final Map<Long, BigDecimal> prices = new ConcurrentHashMap<>();
+
+        private CartState(long cartId, Map<Long, Integer> items) {
+            this.cartId = cartId;
+            this.persisted = new CartSnapshot(Collections.unmodifiableMap(items), 0, false);
+            this.current = new AtomicReference<>(persisted);
+        }
+    }
+
+    /**
+     * @param items   quantity per product id, in the order the products were added
+     * @param version incremented by every mutation, equal to the persisted version when there is nothing to write
+     * @param evicted set once the cart was dropped from memory, mutations must reload it
+     */
+    private record CartSnapshot(Map<Long, Integer> items, long version, boolean evicted) {
+
+        CartSnapshot with(Map<Long, Integer> newItems) {
+            return new CartSnapshot(Collections.unmodifiableMap(newItems), version + 1, false);
+        }
+
+        CartSnapshot evict() {
+            return new CartSnapshot(items, version, true);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Admin user for testing (formerly data.sql). Guarded so baselined databases that already have it are untouched.
+INSERT INTO users (email, username, firstname, password, created_at, updated_at)
+SELECT 'admin@admin.com', 'admin', 'Admin', '$2a$10$XURPShQ5u7x6eS4X4aTkGuO5u2an3W3.4./Y6N/4z0fLq3fM7bX.W', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+FROM DUAL
+WHERE NOT EXISTS (SELECT 1 FROM users WHERE email = 'admin@admin.com');
@@ -0,0 +1,13 @@
+-- Indexes and unique constraints backing the hot lookup predicates.
+
+CREATE INDEX idx_products_category ON products (category_id);
+CREATE INDEX idx_products_updated_at ON products (updated_at);
+CREATE INDEX idx_products_name ON products (name);
+
+ALTER TABLE carts ADD CONSTRAINT uk_carts_user UNIQUE (user_id);
+
+ALTER TABLE cart_items ADD CONSTRAINT uk_cart_items_cart_product UNIQUE (cart_id, product_id);
+CREATE INDEX idx_cart_items_product ON cart_items (product_id);
+
+ALTER TABLE wishlist_items ADD CONSTRAINT uk_wishlist_items_wishlist_product UNIQUE (wishlist_id, product_id);
+CREATE INDEX idx_wishlist_items_product ON wishlist_items (product_id);
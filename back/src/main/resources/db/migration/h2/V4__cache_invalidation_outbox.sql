@@ -0,0 +1,11 @@
+-- Transactional outbox for cross-node cache invalidation.
+
+CREATE TABLE cache_invalidation_outbox (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity_type ENUM ('PRODUCT', 'CATEGORY') NOT NULL,
+    entity_key  VARCHAR(255)                 NOT NULL,
+    origin_node VARCHAR(64)                  NOT NULL,
+    created_at  TIMESTAMP(6)                 NOT NULL
+);
+
+CREATE INDEX idx_cache_invalidation_outbox_created_at ON cache_invalidation_outbox (created_at);
@@ -0,0 +1,9 @@
+-- Per-product popularity counters, incremented in memory and flushed here in batches.
+
+CREATE TABLE product_stats (
+    product_id     BIGINT       NOT NULL PRIMARY KEY,
+    view_count     BIGINT       NOT NULL DEFAULT 0,
+    cart_add_count BIGINT       NOT NULL DEFAULT 0,
+    updated_at     TIMESTAMP(6) NOT NULL,
+    CONSTRAINT fk_product_stats_product FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE
+);
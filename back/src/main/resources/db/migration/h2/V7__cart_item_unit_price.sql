@@ -0,0 +1,6 @@
+-- Price of the product when it was last added to the cart, so revalidation can report price changes.
+-- Existing lines take the current price.
+
+ALTER TABLE cart_items ADD COLUMN unit_price NUMERIC(38, 2);
+UPDATE cart_items SET unit_price = (SELECT p.price FROM products p WHERE p.id = cart_items.product_id);
+ALTER TABLE cart_items ALTER COLUMN unit_price SET NOT NULL;
@@ -0,0 +1,15 @@
+-- Lines of abandoned carts, copied here by the cart sweeper before the cart is deleted.
+-- No foreign keys: archived rows must not block deleting their user or product.
+
+CREATE TABLE abandoned_cart_items (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cart_id         BIGINT         NOT NULL,
+    user_id         BIGINT         NOT NULL,
+    product_id      BIGINT         NOT NULL,
+    quantity        INTEGER        NOT NULL,
+    unit_price      NUMERIC(38, 2) NOT NULL,
+    cart_updated_at TIMESTAMP(6)   NOT NULL,
+    archived_at     TIMESTAMP(6)   NOT NULL
+);
+
+CREATE INDEX idx_abandoned_cart_items_user ON abandoned_cart_items (user_id);
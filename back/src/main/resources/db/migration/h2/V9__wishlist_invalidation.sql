@@ -0,0 +1,3 @@
+-- Wishlist bitmaps cached per node are invalidated through the outbox too, keyed by the user's email.
+
+ALTER TABLE cache_invalidation_outbox ALTER COLUMN entity_type SET DATA TYPE ENUM ('PRODUCT', 'CATEGORY', 'WISHLIST');
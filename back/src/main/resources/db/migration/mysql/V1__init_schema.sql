@@ -0,0 +1,78 @@
+-- Baseline schema, previously produced by spring.jpa.hibernate.ddl-auto=update.
+
+CREATE TABLE users (
+    id         BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    username   VARCHAR(50)  NOT NULL,
+    firstname  VARCHAR(100) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    created_at DATETIME(6)  NOT NULL,
+    updated_at DATETIME(6)  NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE categories (
+    id         BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    name       VARCHAR(100) NOT NULL,
+    created_at DATETIME(6)  NOT NULL,
+    updated_at DATETIME(6)  NOT NULL,
+    CONSTRAINT uk_categories_name UNIQUE (name)
+) ENGINE = InnoDB;
+
+CREATE TABLE products (
+    id                 BIGINT                                     NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    code               VARCHAR(50)                                NOT NULL,
+    name               VARCHAR(255)                               NOT NULL,
+    description        TEXT,
+    image              VARCHAR(500),
+    category_id        BIGINT                                     NOT NULL,
+    price              DECIMAL(38, 2)                             NOT NULL,
+    quantity           INT                                        NOT NULL CHECK (quantity >= 0),
+    internal_reference VARCHAR(100),
+    shell_id           BIGINT,
+    inventory_status   ENUM ('INSTOCK', 'LOWSTOCK', 'OUTOFSTOCK') NOT NULL,
+    rating             DECIMAL(3, 2),
+    created_at         DATETIME(6)                                NOT NULL,
+    updated_at         DATETIME(6)                                NOT NULL,
+    CONSTRAINT uk_products_code UNIQUE (code),
+    CONSTRAINT fk_category_product FOREIGN KEY (category_id) REFERENCES categories (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE carts (
+    id         BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id    BIGINT      NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    CONSTRAINT fk_cart_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE cart_items (
+    id         BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    cart_id    BIGINT      NOT NULL,
+    product_id BIGINT      NOT NULL,
+    quantity   INT         NOT NULL CHECK (quantity >= 1 AND quantity <= 999),
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    CONSTRAINT fk_cart_item_cart FOREIGN KEY (cart_id) REFERENCES carts (id),
+    CONSTRAINT fk_cart_product FOREIGN KEY (product_id) REFERENCES products (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE wishlists (
+    id         BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id    BIGINT NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    CONSTRAINT uk_wishlists_user UNIQUE (user_id),
+    CONSTRAINT fk_wishlist_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE wishlist_items (
+    id          BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    wishlist_id BIGINT NOT NULL,
+    product_id  BIGINT NOT NULL,
+    created_at  DATETIME(6),
+    updated_at  DATETIME(6),
+    CONSTRAINT fk_wishlist_item_wishlist FOREIGN KEY (wishlist_id) REFERENCES wishlists (id),
+    CONSTRAINT fk_wishlist_item_product FOREIGN KEY (product_id) REFERENCES products (id)
+) ENGINE = InnoDB;
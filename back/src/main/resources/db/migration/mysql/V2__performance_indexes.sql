@@ -0,0 +1,22 @@
+-- Indexes and unique constraints backing the hot lookup predicates.
+-- ALGORITHM=INPLACE, LOCK=NONE makes InnoDB build them online, or fail fast instead of blocking writes.
+
+ALTER TABLE products
+    ADD INDEX idx_products_category (category_id),
+    ADD INDEX idx_products_updated_at (updated_at),
+    ADD INDEX idx_products_name (name),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE carts
+    ADD CONSTRAINT uk_carts_user UNIQUE (user_id),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE cart_items
+    ADD CONSTRAINT uk_cart_items_cart_product UNIQUE (cart_id, product_id),
+    ADD INDEX idx_cart_items_product (product_id),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE wishlist_items
+    ADD CONSTRAINT uk_wishlist_items_wishlist_product UNIQUE (wishlist_id, product_id),
+    ADD INDEX idx_wishlist_items_product (product_id),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,10 @@
+-- Transactional outbox for cross-node cache invalidation.
+
+CREATE TABLE cache_invalidation_outbox (
+    id          BIGINT                       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    entity_type ENUM ('PRODUCT', 'CATEGORY') NOT NULL,
+    entity_key  VARCHAR(255)                 NOT NULL,
+    origin_node VARCHAR(64)                  NOT NULL,
+    created_at  DATETIME(6)                  NOT NULL,
+    INDEX idx_cache_invalidation_outbox_created_at (created_at)
+) ENGINE = InnoDB;
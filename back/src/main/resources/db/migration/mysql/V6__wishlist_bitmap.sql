@@ -0,0 +1,6 @@
+-- Product ids of each wishlist as a serialized compressed bitmap, kept next to wishlist_items so membership
+-- checks read one row. NULL until the wishlist is first written, it is then rebuilt from wishlist_items.
+
+ALTER TABLE wishlists
+    ADD COLUMN product_bitmap         MEDIUMBLOB,
+    ADD COLUMN product_bitmap_version BIGINT NOT NULL DEFAULT 0;
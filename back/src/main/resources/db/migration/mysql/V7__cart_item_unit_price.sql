@@ -0,0 +1,6 @@
+-- Price of the product when it was last added to the cart, so revalidation can report price changes.
+-- Existing lines take the current price.
+
+ALTER TABLE cart_items ADD COLUMN unit_price DECIMAL(38, 2) NULL;
+UPDATE cart_items i JOIN products p ON p.id = i.product_id SET i.unit_price = p.price;
+ALTER TABLE cart_items MODIFY unit_price DECIMAL(38, 2) NOT NULL;
@@ -0,0 +1,14 @@
+-- Lines of abandoned carts, copied here by the cart sweeper before the cart is deleted.
+-- No foreign keys: archived rows must not block deleting their user or product.
+
+CREATE TABLE abandoned_cart_items (
+    id              BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    cart_id         BIGINT         NOT NULL,
+    user_id         BIGINT         NOT NULL,
+    product_id      BIGINT         NOT NULL,
+    quantity        INT            NOT NULL,
+    unit_price      DECIMAL(38, 2) NOT NULL,
+    cart_updated_at DATETIME(6)    NOT NULL,
+    archived_at     DATETIME(6)    NOT NULL,
+    INDEX idx_abandoned_cart_items_user (user_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,74 @@
+package com.alten.ecommerce.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoOccurrenceMatrixTests {
+
+    @Test
+    void incrementalUpdatesMatchAFullBuild() {
+        List<long[]> baskets = List.of(new long[]{1, 2, 3}, new long[]{1, 2}, new long[]{2, 4});
+
+        CoOccurrenceMatrix incremental = new CoOccurrenceMatrix();
+        for (long[] basket : baskets) {
+            for (int i = 0; i < basket.length; i++) {
+                incremental.added(basket[i], Arrays.copyOf(basket, i));
+            }
+        }
+        CoOccurrenceMatrix built = CoOccurrenceMatrix.build(baskets, ForkJoinPool.commonPool());
+
+        for (long a = 1; a <= 4; a++) {
+            for (long b = 1; b <= 4; b++) {
+                assertThat(incremental.count(a, b)).isEqualTo(built.count(a, b));
+            }
+        }
+        assertThat(built.topNeighbours(2, 2)).containsExactly(
+                new CoOccurrenceMatrix.Neighbour(1, 2),
+                new CoOccurrenceMatrix.Neighbour(3, 1));
+    }
+
+    @Test
+    void removalsAndDeletedProductsDisappear() {
+        CoOccurrenceMatrix matrix = new CoOccurrenceMatrix();
+        matrix.added(2, new long[]{1});
+        matrix.added(3, new long[]{1, 2});
+
+        matrix.removed(3, new long[]{1, 2});
+        assertThat(matrix.count(1, 3)).isZero();
+        assertThat(matrix.topNeighbours(1, 5)).containsExactly(new CoOccurrenceMatrix.Neighbour(2, 1));
+
+        matrix.removeProduct(2);
+        assertThat(matrix.topNeighbours(1, 5)).isEmpty();
+    }
+
+    @Test
+    void primitiveMapBehavesLikeAHashMap() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long key = 1 + random.nextInt(500);
+            int delta = random.nextInt(5) - 2;
+            map.addTo(key, delta);
+            int value = expected.getOrDefault(key, 0) + delta;
+            if (value <= 0) {
+                expected.remove(key);
+            } else {
+                expected.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,145 @@
+package com.alten.ecommerce.analytics;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the columnar index with the equivalent SQL query on an in-memory H2 table of the same rows.
+ * Not a rigorous benchmark (no JMH), but it checks both return the
+ * same products and prints the time per query on this machine. Excluded from the default build: run with
+ * {@code mvn test -Pbenchmark}
+ */
+@Tag("benchmark")
+class ColumnarCatalogIndexBenchmarkTests {
+
+    private static final int PRODUCTS = 50_000;
+    private static final int CATEGORIES = 25;
+    private static final int ITERATIONS = 200;
+
+    private final ColumnarCatalogIndex index = new ColumnarCatalogIndex();
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:columnar_benchmark;QUERY_CACHE_SIZE=0");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, category VARCHAR(50), "
+                    + "inventory_status VARCHAR(20), price DECIMAL(10, 2), rating DECIMAL(3, 2), quantity INT)");
+            statement.execute("CREATE INDEX idx_products_category ON products (category)");
+        }
+
+        Random random = new Random(42);
+        InventoryStatus[] statuses = InventoryStatus.values();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO products VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= PRODUCTS; id++) {
+                String category = "Category " + random.nextInt(CATEGORIES);
+                InventoryStatus status = statuses[random.nextInt(statuses.length)];
+                BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(100_000), 2);
+                BigDecimal rating = BigDecimal.valueOf(random.nextInt(501), 2);
+                int quantity = random.nextInt(200);
+
+                insert.setLong(1, id);
+                insert.setString(2, category);
+                insert.setString(3, status.name());
+                insert.setBigDecimal(4, price);
+                insert.setBigDecimal(5, rating);
+                insert.setInt(6, quantity);
+                insert.addBatch();
+                index.put(id, category, status, price, rating, quantity);
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void indexMatchesSql() throws Exception {
+        ColumnarCatalogIndex.Filter filter = new ColumnarCatalogIndex.Filter(
+                "category 7", InventoryStatus.INSTOCK, BigDecimal.valueOf(50), BigDecimal.valueOf(800),
+                BigDecimal.valueOf(2.5), 10);
+        String sql = "SELECT id FROM products WHERE LOWER(category) = ? AND inventory_status = ? "
+                + "AND price >= ? AND price <= ? AND rating >= ? AND quantity >= ? "
+                + "ORDER BY price DESC, id ASC LIMIT 20";
+
+        long[] expected = sqlQuery(sql, filter);
+        long[] actual = index.query(filter, ColumnarCatalogIndex.SortKey.PRICE, true, 20);
+        assertThat(actual).hasSize(20).containsExactly(expected);
+
+        ColumnarCatalogIndex.Filter unfiltered = new ColumnarCatalogIndex.Filter(null, null, null, null, null, null);
+        long[] expectedByRating = sqlQuery("SELECT id FROM products ORDER BY rating ASC, id ASC LIMIT 50", null);
+        assertThat(index.query(unfiltered, ColumnarCatalogIndex.SortKey.RATING, false, 50))
+                .containsExactly(expectedByRating);
+
+        // Vary the filter between iterations so neither side can reuse a previous result; warm up, then measure
+        List<ColumnarCatalogIndex.Filter> filters = new ArrayList<>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            filters.add(new ColumnarCatalogIndex.Filter("category " + (i % CATEGORIES), InventoryStatus.INSTOCK,
+                    BigDecimal.valueOf(i % 100), BigDecimal.valueOf(500 + i), BigDecimal.valueOf(i % 5), i % 50));
+        }
+        measureSql(sql, filters);
+        measureIndex(filters);
+        long sqlNanos = measureSql(sql, filters) / ITERATIONS;
+        long indexNanos = measureIndex(filters) / ITERATIONS;
+
+        System.out.printf("%d products: sql %d us/query, columnar index %d us/query%n",
+                PRODUCTS, sqlNanos / 1_000, indexNanos / 1_000);
+    }
+
+    private long measureSql(String sql, List<ColumnarCatalogIndex.Filter> filters) throws Exception {
+        long start = System.nanoTime();
+        for (ColumnarCatalogIndex.Filter filter : filters) {
+            sqlQuery(sql, filter);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long measureIndex(List<ColumnarCatalogIndex.Filter> filters) {
+        long start = System.nanoTime();
+        for (ColumnarCatalogIndex.Filter filter : filters) {
+            index.query(filter, ColumnarCatalogIndex.SortKey.PRICE, true, 20);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long[] sqlQuery(String sql, ColumnarCatalogIndex.Filter filter) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (filter != null) {
+                statement.setString(1, filter.category().toLowerCase());
+                statement.setString(2, filter.inventoryStatus().name());
+                statement.setBigDecimal(3, filter.minPrice());
+                statement.setBigDecimal(4, filter.maxPrice());
+                statement.setBigDecimal(5, filter.minRating());
+                statement.setInt(6, filter.minQuantity());
+            }
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.alten.ecommerce.analytics;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarCatalogIndexTests {
+
+    private static final ColumnarCatalogIndex.Filter UNFILTERED =
+            new ColumnarCatalogIndex.Filter(null, null, null, null, null, null);
+
+    private final ColumnarCatalogIndex index = new ColumnarCatalogIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.put(1, "Books", InventoryStatus.INSTOCK, new BigDecimal("10.00"), new BigDecimal("4.50"), 5);
+        index.put(2, "Books", InventoryStatus.LOWSTOCK, new BigDecimal("25.00"), new BigDecimal("3.00"), 0);
+        index.put(3, "Games", InventoryStatus.INSTOCK, new BigDecimal("15.50"), null, 20);
+        index.put(4, "books", InventoryStatus.INSTOCK, new BigDecimal("8.99"), new BigDecimal("4.50"), 12);
+        index.put(5, "Games", InventoryStatus.OUTOFSTOCK, new BigDecimal("60.00"), new BigDecimal("2.00"), 0);
+        index.put(6, "Books", InventoryStatus.INSTOCK, new BigDecimal("25.00"), new BigDecimal("5.00"), 3);
+        // Past the initial capacity of the columns
+        for (long id = 7; id <= 20; id++) {
+            index.put(id, "Toys", InventoryStatus.LOWSTOCK, BigDecimal.valueOf(id), null, 1);
+        }
+    }
+
+    @Test
+    void filtersCombineAndCategoryIgnoresCase() {
+        ColumnarCatalogIndex.Filter filter = new ColumnarCatalogIndex.Filter("BOOKS", InventoryStatus.INSTOCK,
+                null, null, null, null);
+        assertThat(index.query(filter, ColumnarCatalogIndex.SortKey.PRICE, true, 10)).containsExactly(6, 1, 4);
+        assertThat(index.query(filter, ColumnarCatalogIndex.SortKey.PRICE, true, 2)).containsExactly(6, 1);
+        assertThat(index.query(new ColumnarCatalogIndex.Filter("Garden", null, null, null, null, null),
+                null, false, 10)).isEmpty();
+    }
+
+    @Test
+    void priceBoundsAreInclusiveToTheCent() {
+        ColumnarCatalogIndex.Filter filter = new ColumnarCatalogIndex.Filter(null, InventoryStatus.INSTOCK,
+                new BigDecimal("10"), new BigDecimal("25"), null, null);
+        assertThat(index.query(filter, ColumnarCatalogIndex.SortKey.PRICE, false, 10)).containsExactly(1, 3, 6);
+
+        filter = new ColumnarCatalogIndex.Filter(null, InventoryStatus.INSTOCK,
+                new BigDecimal("10.001"), new BigDecimal("24.999"), null, null);
+        assertThat(index.query(filter, ColumnarCatalogIndex.SortKey.PRICE, false, 10)).containsExactly(3);
+    }
+
+    @Test
+    void unratedProductsFailAnyRatingFilter() {
+        assertThat(index.query(new ColumnarCatalogIndex.Filter("Games", null, null, null, BigDecimal.ZERO, null),
+                null, false, 10)).containsExactly(5);
+        assertThat(index.query(new ColumnarCatalogIndex.Filter(null, null, null, null, new BigDecimal("4.5"), null),
+                null, false, 10)).containsExactly(1, 4, 6);
+    }
+
+    @Test
+    void sortsBreakTiesByAscendingId() {
+        assertThat(index.query(UNFILTERED, ColumnarCatalogIndex.SortKey.RATING, true, 3)).containsExactly(6, 1, 4);
+        assertThat(index.query(UNFILTERED, ColumnarCatalogIndex.SortKey.QUANTITY, true, 2)).containsExactly(3, 4);
+        assertThat(index.query(new ColumnarCatalogIndex.Filter(null, null, null, null, null, 1),
+                ColumnarCatalogIndex.SortKey.QUANTITY, false, 3)).containsExactly(7, 8, 9);
+    }
+
+    @Test
+    void updatedProductsAreQueriedWithTheirNewValues() {
+        index.put(2, "Games", InventoryStatus.INSTOCK, new BigDecimal("25.00"), new BigDecimal("3.00"), 30);
+
+        assertThat(index.size()).isEqualTo(20);
+        assertThat(index.query(UNFILTERED, ColumnarCatalogIndex.SortKey.QUANTITY, true, 1)).containsExactly(2);
+        assertThat(index.query(new ColumnarCatalogIndex.Filter("games", InventoryStatus.INSTOCK, null, null, null,
+                null), null, false, 10)).containsExactly(2, 3);
+    }
+
+    @Test
+    void removedProductsDropOutOfResults() {
+        assertThat(index.query(UNFILTERED, null, false, 3)).containsExactly(1, 2, 3);
+
+        index.remove(2);
+        index.remove(20);
+        assertThat(index.size()).isEqualTo(18);
+        assertThat(index.query(UNFILTERED, null, false, 3)).containsExactly(1, 3, 4);
+        assertThat(index.query(UNFILTERED, null, true, 1)).containsExactly(1);
+        assertThat(index.query(UNFILTERED, ColumnarCatalogIndex.SortKey.PRICE, true, 1)).containsExactly(5);
+    }
+}
@@ -0,0 +1,58 @@
+package com.alten.ecommerce.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedBitmapTests {
+
+    private static long[] toArray(TreeSet<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Test
+    void matchesASortedSetThroughDenseAndSparseChunks() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        // Chunk 0 goes dense and back to sparse, the others stay sparse
+        for (int i = 0; i < 20_000; i++) {
+            long id = i % 4 == 0 ? random.nextInt(3_000_000) : random.nextInt(65_536);
+            assertThat(bitmap.add(id)).isEqualTo(expected.add(id));
+        }
+        assertThat(bitmap.toArray()).containsExactly(toArray(expected));
+
+        for (int i = 0; i < 60_000; i++) {
+            long id = random.nextInt(65_536);
+            assertThat(bitmap.remove(id)).isEqualTo(expected.remove(id));
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+        assertThat(bitmap.toArray()).containsExactly(toArray(expected));
+        for (long id = 0; id < 70_000; id++) {
+            assertThat(bitmap.contains(id)).isEqualTo(expected.contains(id));
+        }
+        assertThat(CompressedBitmap.deserialize(bitmap.serialize()).toArray()).containsExactly(toArray(expected));
+    }
+
+    @Test
+    void intersectionKeepsOnlyCommonIds() {
+        CompressedBitmap wishList = new CompressedBitmap();
+        for (long id = 0; id < 10_000; id += 2) {
+            wishList.add(id);
+        }
+        wishList.add(1_000_000);
+        CompressedBitmap page = CompressedBitmap.of(java.util.List.of(3L, 4L, 9_998L, 10_000L, 1_000_000L, 5_000_000L));
+
+        assertThat(wishList.and(page).toArray()).containsExactly(4, 9_998, 1_000_000);
+        assertThat(page.and(wishList).toArray()).containsExactly(4, 9_998, 1_000_000);
+        assertThat(new CompressedBitmap().and(page).isEmpty()).isTrue();
+
+        CompressedBitmap copy = wishList.copy();
+        copy.remove(4);
+        assertThat(wishList.contains(4)).isTrue();
+        assertThat(CompressedBitmap.deserialize(new CompressedBitmap().serialize()).isEmpty()).isTrue();
+    }
+}
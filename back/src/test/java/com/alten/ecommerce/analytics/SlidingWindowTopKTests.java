@@ -0,0 +1,62 @@
+package com.alten.ecommerce.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowTopKTests {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void ranksByCountAndKeepsOnlyKPublishedOnTheTick() {
+        SlidingWindowTopK window = new SlidingWindowTopK(60, MINUTE, 2, 0);
+        record(window, 1, 1, 0);
+        record(window, 2, 3, 0);
+        record(window, 3, 2, 0);
+        assertThat(window.top(10)).isEmpty();
+
+        window.advance(0);
+        assertThat(window.top(10)).containsExactly(
+                new SlidingWindowTopK.Ranked(2, 3),
+                new SlidingWindowTopK.Ranked(3, 2));
+
+        // Product 1 overtakes product 3 and enters the ranking, ties go to the lower id
+        record(window, 1, 2, 0);
+        window.advance(0);
+        assertThat(window.top(10)).containsExactly(
+                new SlidingWindowTopK.Ranked(1, 3),
+                new SlidingWindowTopK.Ranked(2, 3));
+    }
+
+    @Test
+    void expiredBucketsLeaveTheRanking() {
+        SlidingWindowTopK window = new SlidingWindowTopK(60, MINUTE, 3, 0);
+        record(window, 1, 5, 0);
+        record(window, 2, 2, 30 * MINUTE);
+
+        window.advance(60 * MINUTE);
+        assertThat(window.top(10)).containsExactly(new SlidingWindowTopK.Ranked(2, 2));
+
+        window.advance(200 * MINUTE);
+        assertThat(window.top(10)).isEmpty();
+    }
+
+    @Test
+    void removedProductIsReplacedByTheNextBest() {
+        SlidingWindowTopK window = new SlidingWindowTopK(60, MINUTE, 1, 0);
+        record(window, 1, 3, 0);
+        record(window, 2, 2, 0);
+        window.advance(0);
+        assertThat(window.top(10)).containsExactly(new SlidingWindowTopK.Ranked(1, 3));
+
+        window.remove(1);
+        assertThat(window.top(10)).containsExactly(new SlidingWindowTopK.Ranked(2, 2));
+    }
+
+    private static void record(SlidingWindowTopK window, long productId, int times, long now) {
+        for (int i = 0; i < times; i++) {
+            window.record(productId, now);
+        }
+    }
+}
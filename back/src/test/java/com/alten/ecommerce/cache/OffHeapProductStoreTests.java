@@ -0,0 +1,100 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapProductStoreTests {
+
+    @TempDir
+    Path directory;
+
+    private static ProductDTO product(long id, String name, long updatedAt) {
+        return product(id, name, InventoryStatus.LOWSTOCK, updatedAt);
+    }
+
+    private static ProductDTO product(long id, String name, InventoryStatus status, long updatedAt) {
+        return new ProductDTO(id, "code-" + id, name, "Déscription " + id, null, "Category", new BigDecimal("12.50"),
+                3, null, 7L, status, null, 1_700_000_000_000L, updatedAt);
+    }
+
+    @Test
+    void recordsRoundTripAndOldViewsSurviveUpdates() {
+        OffHeapProductStore store = new OffHeapProductStore(null, "", DataSize.ofBytes(64));
+        ProductDTO original = product(1, "First", 1);
+        store.put(original);
+        ProductRecord view = store.get(1);
+
+        // Far more than the initial capacity, so the store has to grow and compact several times
+        for (int version = 2; version < 200; version++) {
+            store.put(product(1, "Name " + version, version));
+            store.put(product(version, "Other " + version, version));
+        }
+        store.put(product(1, "Outdated", 0));
+
+        assertThat(view.toDTO()).isEqualTo(original);
+        assertThat(store.get(1).name()).isEqualTo("Name 199");
+        assertThat(store.get(1).toDTO()).isEqualTo(product(1, "Name 199", 199));
+        assertThat(store.size()).isEqualTo(199);
+
+        store.remove(5);
+        assertThat(store.get(5)).isNull();
+        assertThat(store.get(6).price()).isEqualByComparingTo("12.50");
+        assertThat(store.size()).isEqualTo(198);
+    }
+
+    @Test
+    void mappedStoreIsReopenedAfterRestart() throws Exception {
+        OffHeapProductStore store = new OffHeapProductStore(null, directory.toString(), DataSize.ofBytes(256));
+        for (long id = 1; id <= 50; id++) {
+            store.put(product(id, "Product " + id, id));
+        }
+        store.put(product(10, "Renamed", 100));
+        store.remove(20);
+        store.close();
+
+        OffHeapProductStore reopened = new OffHeapProductStore(null, directory.toString(), DataSize.ofBytes(256));
+        assertThat(reopened.size()).isEqualTo(49);
+        assertThat(reopened.get(10).toDTO()).isEqualTo(product(10, "Renamed", 100));
+        assertThat(reopened.get(20)).isNull();
+        assertThat(reopened.get(50).description()).isEqualTo("Déscription 50");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void storeFileWithAnotherRecordFormatIsRebuilt() throws Exception {
+        OffHeapProductStore store = new OffHeapProductStore(null, directory.toString(), DataSize.ofBytes(256));
+        InventoryStatus[] statuses = InventoryStatus.values();
+        for (int i = 0; i < statuses.length; i++) {
+            store.put(product(i + 1, "Product " + i, statuses[i], 1));
+            assertThat(store.get(i + 1).inventoryStatus()).isEqualTo(statuses[i]);
+        }
+        store.close();
+
+        // As written before the record format was versioned: the header slot was left at zero
+        try (Stream<Path> files = Files.list(directory);
+             FileChannel channel = FileChannel.open(files.findFirst().orElseThrow(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), 12);
+        }
+
+        OffHeapProductStore reopened = new OffHeapProductStore(null, directory.toString(), DataSize.ofBytes(256));
+        assertThat(reopened.size()).isZero();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.repositories.CacheInvalidationOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxbus;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog",
+        "app.cache.invalidation.node-id=this-node",
+        // Only the poll at startup runs on its own, the tests poll themselves
+        "app.cache.invalidation.poll-interval-ms=3600000"
+})
+@RecordApplicationEvents
+class OutboxInvalidationBusTests {
+
+    // Ids well above those of the rows written at startup, a block per test
+    private static final AtomicLong IDS = new AtomicLong(1_000_000);
+
+    @Autowired
+    private OutboxInvalidationBus bus;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private CacheInvalidationOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rowCommittedAfterAHigherIdIsStillDelivered() {
+        long base = IDS.addAndGet(1_000);
+        // Gaps are counted from a row already seen
+        insert(base, "order-0", "other-node");
+        insert(base + 2, "order-2", "other-node");
+        bus.poll();
+        assertThat(delivered()).containsExactly("order-0", "order-2");
+
+        // Its id was allocated first, but its transaction only commits now
+        insert(base + 1, "order-1", "other-node");
+        insert(base + 3, "order-3", "this-node");
+        insert(base + 4, "order-4", "other-node");
+        bus.poll();
+        bus.poll();
+        assertThat(delivered()).containsExactly("order-0", "order-2", "order-1", "order-4");
+    }
+
+    @Test
+    void rowWhoseListenerFailedIsDeliveredAgain() {
+        List<String> delivered = new ArrayList<>();
+        int[] failures = {1};
+        OutboxInvalidationBus bus = bus(event -> {
+            String key = ((CacheInvalidationEvent) event).entityKey();
+            if (key.equals("retry-2") && failures[0]-- > 0) {
+                throw new IllegalStateException("Listener failed");
+            }
+            delivered.add(key);
+        });
+        long base = IDS.addAndGet(1_000);
+        insert(base, "retry-1", "other-node");
+        insert(base + 1, "retry-2", "other-node");
+        insert(base + 2, "retry-3", "other-node");
+
+        assertThatThrownBy(bus::poll).isInstanceOf(IllegalStateException.class);
+        bus.poll();
+        assertThat(delivered).filteredOn(key -> key.startsWith("retry-"))
+                .containsExactly("retry-1", "retry-2", "retry-3");
+    }
+
+    @Test
+    void noGapsAreTrackedBelowTheFirstRowWhenOlderRowsWerePurged() {
+        jdbcTemplate.update("DELETE FROM cache_invalidation_outbox");
+        List<String> delivered = new ArrayList<>();
+        OutboxInvalidationBus bus = bus(event -> delivered.add(((CacheInvalidationEvent) event).entityKey()));
+        long base = IDS.addAndGet(1_000);
+        insert(base + 5, "purged-2", "other-node");
+        bus.poll();
+
+        insert(base, "purged-1", "other-node");
+        bus.poll();
+        assertThat(delivered).containsExactly("purged-2");
+    }
+
+    /**
+     * A bus of its own, starting with no outbox row older than its lookback
+     */
+    private OutboxInvalidationBus bus(ApplicationEventPublisher publisher) {
+        return new OutboxInvalidationBus(outboxRepository, publisher, "this-node", Duration.ofDays(1), Duration.ofDays(1));
+    }
+
+    private List<String> delivered() {
+        return events.stream(CacheInvalidationEvent.class)
+                .filter(event -> !event.local())
+                .map(CacheInvalidationEvent::entityKey)
+                .filter(key -> key.startsWith("order-"))
+                .toList();
+    }
+
+    private void insert(long id, String key, String originNode) {
+        jdbcTemplate.update("INSERT INTO cache_invalidation_outbox (id, entity_type, entity_key, origin_node, created_at) "
+                + "VALUES (?, 'CATEGORY', ?, ?, CURRENT_TIMESTAMP)", id, key, originNode);
+    }
+}
@@ -0,0 +1,145 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productjsoncache;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog",
+        "app.cache.json.gzip-min-size=1024"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@admin.com")
+class ProductJsonCacheTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void gzipIsServedOnlyWhenAccepted() throws Exception {
+        String category = category(20);
+        byte[] identity = fetch("/api/products/category/" + category, null).getContentAsByteArray();
+        assertThat(identity.length).isGreaterThanOrEqualTo(1024);
+
+        MockHttpServletResponse gzipped = fetch("/api/products/category/" + category, "deflate, gzip;q=0.5");
+        assertThat(gzipped.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gunzip(gzipped.getContentAsByteArray())).isEqualTo(identity);
+
+        for (String refused : new String[]{"gzip;q=0", "GZIP; q=0.000", "br, deflate", ""}) {
+            MockHttpServletResponse response = fetch("/api/products/category/" + category, refused);
+            assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).as(refused).isNull();
+            assertThat(response.getContentAsByteArray()).as(refused).isEqualTo(identity);
+        }
+    }
+
+    @Test
+    void bodiesUnderTheMinimumSizeAreNotCompressed() throws Exception {
+        String category = category(1);
+        MockHttpServletResponse response = fetch("/api/products/category/" + category, "gzip");
+        assertThat(response.getContentAsByteArray().length).isLessThan(1024);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(new ObjectMapper().readTree(response.getContentAsByteArray()).size()).isEqualTo(1);
+    }
+
+    @Test
+    void caseVariantsOfACategoryShareOneEntry() throws Exception {
+        String category = category(2);
+        ProductJsonCache.EncodedJson canonical = productJsonCache.getProductsByCategory(category);
+
+        assertThat(productJsonCache.getProductsByCategory(category.toLowerCase())).isSameAs(canonical);
+        assertThat(new ObjectMapper().readTree(fetch("/api/products/category/" + category.toLowerCase(), null)
+                .getContentAsByteArray()).size()).isEqualTo(2);
+
+        productJsonCache.onInvalidation(new CacheInvalidationEvent(0, CacheInvalidationEvent.EntityType.CATEGORY,
+                category.toUpperCase(), "other-node", false));
+        assertThat(productJsonCache.getProductsByCategory(category)).isNotSameAs(canonical);
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsServedButNotStored() {
+        AtomicReference<ProductJsonCache> cache = new AtomicReference<>();
+        AtomicInteger loads = new AtomicInteger();
+        ProductReadCoalescer loader = new ProductReadCoalescer(null, null, new SimpleMeterRegistry(), Duration.ofSeconds(5)) {
+            @Override
+            public ProductDTO getProductById(Long id) {
+                int load = loads.incrementAndGet();
+                if (load == 1) {
+                    // The product is written while its first read is being encoded
+                    cache.get().onInvalidation(new CacheInvalidationEvent(0, CacheInvalidationEvent.EntityType.PRODUCT,
+                            String.valueOf(id), "other-node", false));
+                }
+                return new ProductDTO(id, "code", "Version " + load, null, null, "Category", BigDecimal.ONE, 1,
+                        null, null, InventoryStatus.INSTOCK, null, null, null);
+            }
+        };
+        cache.set(new ProductJsonCache(loader, new ObjectMapper(), true, 1024));
+
+        assertThat(new String(cache.get().getProductById(1L).json())).contains("Version 1");
+        assertThat(new String(cache.get().getProductById(1L).json())).contains("Version 2");
+        assertThat(new String(cache.get().getProductById(1L).json())).contains("Version 2");
+        assertThat(loads).hasValue(2);
+    }
+
+    private MockHttpServletResponse fetch(String path, String acceptEncoding) throws Exception {
+        var request = get(path);
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse();
+    }
+
+    /**
+     * A new category holding that many products
+     */
+    private String category(int products) {
+        String category = "Json" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO categories (name, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", category);
+        for (int i = 0; i < products; i++) {
+            String code = category + "-" + i;
+            jdbcTemplate.update("INSERT INTO products (code, name, description, category_id, price, quantity, "
+                    + "inventory_status, created_at, updated_at) SELECT ?, ?, ?, id, 10, 1, 'INSTOCK', "
+                    + "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM categories WHERE name = ?",
+                    code, code, "Product " + code + " of the " + category + " category", category);
+        }
+        return category;
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
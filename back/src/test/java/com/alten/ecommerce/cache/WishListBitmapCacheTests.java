@@ -0,0 +1,67 @@
+package com.alten.ecommerce.cache;
+
+import com.alten.ecommerce.analytics.CompressedBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WishListBitmapCacheTests {
+
+    private static final String EMAIL = "user@example.com";
+
+    private final WishListBitmapCache cache = new WishListBitmapCache(100);
+
+    @Test
+    void remoteWishListInvalidationEvictsTheEntry() {
+        cache.put(EMAIL, entry(1, 10L));
+
+        cache.onInvalidation(event(CacheInvalidationEvent.EntityType.WISHLIST, EMAIL, false));
+
+        assertThat(cache.get(EMAIL)).isNull();
+    }
+
+    @Test
+    void localAndCatalogInvalidationsKeepTheEntry() {
+        WishListBitmapCache.Entry entry = entry(1, 10L);
+        cache.put(EMAIL, entry);
+
+        cache.onInvalidation(event(CacheInvalidationEvent.EntityType.WISHLIST, EMAIL, true));
+        cache.onInvalidation(event(CacheInvalidationEvent.EntityType.PRODUCT, "10", false));
+
+        assertThat(cache.get(EMAIL)).isSameAs(entry);
+    }
+
+    @Test
+    void loadRacingWithAnInvalidationIsNotCached() {
+        long generation = cache.generation();
+        WishListBitmapCache.Entry loaded = entry(1, 10L);
+
+        // The row was read before another node's write, whose invalidation lands before the load is cached
+        cache.onInvalidation(event(CacheInvalidationEvent.EntityType.WISHLIST, EMAIL, false));
+        cache.putLoaded(EMAIL, loaded, generation);
+        assertThat(cache.get(EMAIL)).isNull();
+
+        cache.putLoaded(EMAIL, loaded, cache.generation());
+        assertThat(cache.get(EMAIL)).isSameAs(loaded);
+    }
+
+    @Test
+    void olderVersionNeverReplacesANewerOne() {
+        WishListBitmapCache.Entry newer = entry(2, 10L, 11L);
+        cache.put(EMAIL, newer);
+
+        cache.put(EMAIL, entry(1, 10L));
+
+        assertThat(cache.get(EMAIL)).isSameAs(newer);
+    }
+
+    private static WishListBitmapCache.Entry entry(long version, Long... productIds) {
+        return new WishListBitmapCache.Entry(1L, version, CompressedBitmap.of(List.of(productIds)));
+    }
+
+    private static CacheInvalidationEvent event(CacheInvalidationEvent.EntityType type, String key, boolean local) {
+        return new CacheInvalidationEvent(1, type, key, "node", local);
+    }
+}
@@ -0,0 +1,81 @@
+package com.alten.ecommerce.config;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Size and encode/decode time of a catalog sized product list in each supported representation.
+ * Not a rigorous benchmark (no JMH), but enough to compare the formats on the same machine. Excluded from the
+ * default build: run with {@code mvn test -Pbenchmark}
+ */
+@Tag("benchmark")
+class BinaryContentNegotiationBenchmarkTests {
+
+    private static final int PRODUCTS = 2_000;
+    private static final int ITERATIONS = 50;
+
+    private final List<ProductDTO> products = IntStream.range(0, PRODUCTS)
+            .mapToObj(i -> new ProductDTO(
+                    (long) i,
+                    "code-" + i,
+                    "Product " + i,
+                    "Description of product " + i,
+                    "/api/images/" + i + ".png",
+                    "Category " + (i % 20),
+                    BigDecimal.valueOf(1_000 + i, 2),
+                    i % 100,
+                    "REF-" + i,
+                    (long) i * 7,
+                    InventoryStatus.values()[i % InventoryStatus.values().length],
+                    BigDecimal.valueOf(i % 50, 1),
+                    1_700_000_000_000L + i,
+                    1_700_000_000_000L + i))
+            .toList();
+
+    @Test
+    void binaryFormatsRoundTripAndAreSmallerThanJson() throws Exception {
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json().build());
+        mappers.put("cbor", Jackson2ObjectMapperBuilder.cbor().build());
+        mappers.put("smile", Jackson2ObjectMapperBuilder.smile().build());
+
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            byte[] encoded = mapper.writeValueAsBytes(products);
+            List<ProductDTO> decoded = mapper.readValue(encoded, new TypeReference<>() {});
+            assertThat(decoded).isEqualTo(products);
+            sizes.put(entry.getKey(), encoded.length);
+
+            // Warm up, then measure
+            measure(mapper);
+            long nanos = measure(mapper);
+            System.out.printf("%-5s %8d bytes %8.2f ms per encode+decode%n",
+                    entry.getKey(), encoded.length, nanos / 1_000_000.0 / ITERATIONS);
+        }
+
+        assertThat(sizes.get("cbor")).isLessThan(sizes.get("json"));
+        assertThat(sizes.get("smile")).isLessThan(sizes.get("json"));
+    }
+
+    private long measure(ObjectMapper mapper) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(products), new TypeReference<List<ProductDTO>>() {});
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,104 @@
+package com.alten.ecommerce.config;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:binarycontent;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@admin.com")
+class BinaryContentNegotiationTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void cborRoundTrip() throws Exception {
+        roundTrip(MediaType.APPLICATION_CBOR, Jackson2ObjectMapperBuilder.cbor().build());
+    }
+
+    @Test
+    void smileRoundTrip() throws Exception {
+        roundTrip(MediaType.parseMediaType(BinaryContentNegotiationConfig.APPLICATION_SMILE_VALUE),
+                Jackson2ObjectMapperBuilder.smile().build());
+    }
+
+    @Test
+    void jsonStaysTheDefault() throws Exception {
+        ProductDTO created = create(MediaType.APPLICATION_JSON, Jackson2ObjectMapperBuilder.json().build());
+
+        mvc.perform(get("/api/products/{id}", created.id()).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Create a product with a request body in the format, then read it back in the format and as JSON
+     */
+    private void roundTrip(MediaType mediaType, ObjectMapper mapper) throws Exception {
+        ProductDTO created = create(mediaType, mapper);
+        assertThat(created.id()).isNotNull();
+        assertThat(created.price()).isEqualByComparingTo("12.34");
+        assertThat(created.inventoryStatus()).isEqualTo(InventoryStatus.LOWSTOCK);
+
+        byte[] body = mvc.perform(get("/api/products/{id}", created.id()).accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        ProductDTO read = mapper.readValue(body, ProductDTO.class);
+        assertThat(read).isEqualTo(json(created.id()));
+        assertThat(read.code()).isEqualTo(created.code());
+
+        body = mvc.perform(get("/api/products/category/{category}", created.category()).accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        List<ProductDTO> listed = mapper.readValue(body, new TypeReference<>() {});
+        assertThat(listed).extracting(ProductDTO::id).containsExactly(created.id());
+    }
+
+    private ProductDTO create(MediaType mediaType, ObjectMapper mapper) throws Exception {
+        String code = "BIN" + SEQUENCE.incrementAndGet();
+        ProductDTO product = new ProductDTO(null, code, "Binary " + code, "Sent as " + mediaType, null, code,
+                new BigDecimal("12.34"), 3, "REF-" + code, 7L, InventoryStatus.LOWSTOCK, null, null, null);
+        byte[] body = mvc.perform(post("/api/products")
+                        .contentType(mediaType)
+                        .accept(mediaType)
+                        .content(mapper.writeValueAsBytes(product)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        return mapper.readValue(body, ProductDTO.class);
+    }
+
+    private ProductDTO json(Long id) throws Exception {
+        byte[] body = mvc.perform(get("/api/products/{id}", id).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        return Jackson2ObjectMapperBuilder.json().build().readValue(body, ProductDTO.class);
+    }
+}
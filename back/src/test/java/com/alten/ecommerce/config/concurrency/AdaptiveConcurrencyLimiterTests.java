@@ -0,0 +1,42 @@
+package com.alten.ecommerce.config.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private AdaptiveConcurrencyLimiter limiter() {
+        ConcurrencyLimitProperties.Group settings = new ConcurrencyLimitProperties.Group();
+        settings.setInitialLimit(100);
+        settings.setLatencyThreshold(Duration.ofMillis(100));
+        settings.setBackoffRatio(0.5);
+        return new AdaptiveConcurrencyLimiter("test", settings, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void slowRequestsOfOneRoundTripBackOffOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        // All ten were admitted before the first of them finished slowly
+        for (int i = 0; i < 10; i++) {
+            limiter.release(SLOW + i, start + SLOW + i);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(50);
+
+        // A request admitted after the decrease and still slow backs off again
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.release(SLOW, start + 2 * SLOW + 10);
+        assertThat(limiter.getLimit()).isEqualTo(25);
+    }
+}
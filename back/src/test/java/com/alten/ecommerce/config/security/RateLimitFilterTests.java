@@ -0,0 +1,84 @@
+package com.alten.ecommerce.config.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimitFilter filter = new RateLimitFilter(properties(), new ObjectMapper(), meterRegistry);
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties.Policy login = new RateLimitProperties.Policy();
+        login.setName("login");
+        login.setPaths(List.of("/token"));
+        login.setMethods(List.of("post"));
+        login.setCapacity(2);
+        login.setRefillPeriod(Duration.ofMinutes(1));
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setPolicies(List.of(login));
+        return properties;
+    }
+
+    private MockHttpServletResponse perform(String method, String path, String remoteAddress) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(remoteAddress);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        // The chain only sees the request when the filter let it through
+        assertThat(chain.getRequest() != null).isEqualTo(response.getStatus() == HttpStatus.OK.value());
+        return response;
+    }
+
+    @Test
+    void exhaustedBucketIsRejectedWithRetryAfter() throws Exception {
+        assertThat(perform("POST", "/token", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/token", "10.0.0.1").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = perform("POST", "/token", "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        // One token every 30 seconds, rounded up to whole seconds
+        assertThat(Integer.parseInt(rejected.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(29, 30);
+        assertThat(rejected.getContentAsString()).contains("\"status\":429");
+        assertThat(meterRegistry.counter("http.rate_limit.rejected", "policy", "login").count()).isEqualTo(1);
+
+        // Requests no policy matches are not counted
+        assertThat(perform("GET", "/token", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/account", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void anonymousClientsAreKeyedByAddressAndUsersByName() throws Exception {
+        perform("POST", "/token", "10.0.0.1");
+        perform("POST", "/token", "10.0.0.1");
+        assertThat(perform("POST", "/token", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(perform("POST", "/token", "10.0.0.2").getStatus()).isEqualTo(200);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "user@test.com", null, AuthorityUtils.NO_AUTHORITIES));
+        assertThat(perform("POST", "/token", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/token", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/token", "10.0.0.2").getStatus()).isEqualTo(429);
+    }
+}
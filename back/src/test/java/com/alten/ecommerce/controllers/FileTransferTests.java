@@ -0,0 +1,40 @@
+package com.alten.ecommerce.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileTransferTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rangeIsCopiedWithoutSendfile() throws Exception {
+        Path file = Files.writeString(directory.resolve("file.txt"), "0123456789");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileTransfer.send(new MockHttpServletRequest(), response, file, 2, 5);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    @Timeout(10)
+    void fileShorterThanTheRangeFailsInsteadOfLooping() throws Exception {
+        // As if the file was truncated after its length was used for the range
+        Path file = Files.writeString(directory.resolve("file.txt"), "0123456789");
+
+        assertThatThrownBy(() -> FileTransfer.send(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                file, 0, 19))
+                .isInstanceOf(EOFException.class);
+    }
+}
@@ -0,0 +1,132 @@
+package com.alten.ecommerce.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productcontroller;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog",
+        "app.images.root=target/test-images/productcontroller",
+        "app.images.max-pixels=10000",
+        "app.products.batch.max-ids=3"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@admin.com")
+class ProductControllerTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final Path IMAGES = Path.of("target/test-images/productcontroller");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sortAndFieldsListingsAreDistinct() throws Exception {
+        mvc.perform(get("/api/products").param("sort", "popularity")).andExpect(status().isOk());
+        mvc.perform(get("/api/products").param("fields", "name,price")).andExpect(status().isOk());
+        mvc.perform(get("/api/products").param("sort", "popularity").param("fields", "id,name"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void queryDirectionRequiresASort() throws Exception {
+        mvc.perform(get("/api/products/query").param("sort", "PRICE").param("direction", "DESC"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/products/query")).andExpect(status().isOk());
+        mvc.perform(get("/api/products/query").param("direction", "DESC")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void batchKeepsTheRequestedOrderOnceAndReportsMissingIds() throws Exception {
+        long first = product();
+        long second = product();
+        String ids = second + "," + Long.MAX_VALUE + "," + first + "," + second;
+
+        mvc.perform(get("/api/products/batch").param("ids", ids))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()").value(2))
+                .andExpect(jsonPath("$.products[0].id").value(second))
+                .andExpect(jsonPath("$.products[1].id").value(first))
+                .andExpect(jsonPath("$.missing.length()").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(Long.MAX_VALUE));
+        mvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_JSON).content("[" + ids + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value(second))
+                .andExpect(jsonPath("$.missing[0]").value(Long.MAX_VALUE));
+    }
+
+    @Test
+    void batchOfMoreDistinctIdsThanTheMaximumIsABadRequest() throws Exception {
+        mvc.perform(get("/api/products/batch").param("ids", "1,2,3,4"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_JSON).content("[1,2,3,4]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void imageUploadChecksTheProductAndTheSizeBeforeStoring() throws Exception {
+        FileSystemUtils.deleteRecursively(IMAGES);
+        mvc.perform(multipart("/api/products/{id}/image", Long.MAX_VALUE).file(png(50, 50)))
+                .andExpect(status().isNotFound());
+        mvc.perform(multipart("/api/products/{id}/image", product()).file(png(200, 51)))
+                .andExpect(status().isPayloadTooLarge());
+        assertThat(storedFiles()).isZero();
+
+        mvc.perform(multipart("/api/products/{id}/image", product()).file(png(100, 100)))
+                .andExpect(status().isOk());
+        // The original and a thumbnail per width
+        assertThat(storedFiles()).isEqualTo(3);
+    }
+
+    private long product() {
+        String code = "IMG" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO categories (name, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", code);
+        jdbcTemplate.update("INSERT INTO products (code, name, category_id, price, quantity, inventory_status, "
+                + "created_at, updated_at) SELECT ?, ?, id, 10, 1, 'INSTOCK', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM categories WHERE name = ?", code, code, code);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE code = ?", Long.class, code);
+    }
+
+    private static MockMultipartFile png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return new MockMultipartFile("file", "image.png", "image/png", out.toByteArray());
+    }
+
+    private static long storedFiles() throws IOException {
+        if (!Files.exists(IMAGES)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(IMAGES)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
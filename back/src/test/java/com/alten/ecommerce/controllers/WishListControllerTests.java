@@ -0,0 +1,29 @@
+package com.alten.ecommerce.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:wishlistcontroller;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin@admin.com")
+class WishListControllerTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void negativeProductIdIsABadRequest() throws Exception {
+        mvc.perform(get("/api/wishlists/contains").param("productIds", "1,-2"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,61 @@
+package com.alten.ecommerce.journal;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Append throughput per fsync policy, excluded from the default build: run with {@code mvn test -Pbenchmark}
+ */
+@Tag("benchmark")
+class MutationJournalBenchmarkTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendThroughputPerFsyncPolicy() throws Exception {
+        int threads = 8;
+        int appendsPerThread = 2_000;
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            Path policyDirectory = Files.createDirectory(directory.resolve(policy.name()));
+            MutationJournal journal = new MutationJournal(policyDirectory, 1 << 20, policy, Duration.ofMillis(10));
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long cartId = t + 1;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        journal.sync(journal.append(JournalRecord.cartItem(cartId, i, i + 1)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            executor.shutdown();
+            journal.close();
+
+            MutationJournal reopened = new MutationJournal(policyDirectory, 1 << 20, policy, Duration.ofMillis(10));
+            List<JournalRecord> records = new ArrayList<>();
+            reopened.replay((sequence, record) -> records.add(record));
+            assertThat(records).hasSize(threads * appendsPerThread);
+            reopened.close();
+            System.out.printf("Journal %s: %d appends in %d ms (%.0f ops/s)%n", policy, threads * appendsPerThread,
+                    elapsed / 1_000_000, threads * appendsPerThread * 1e9 / elapsed);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.alten.ecommerce.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MutationJournalTests {
+
+    private static final int FRAME_SIZE = 16 + JournalRecord.SIZE;
+    // Room for ten records, so a few hundred appends roll over many segments
+    private static final int SEGMENT_SIZE = 16 + 10 * FRAME_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private MutationJournal open(FsyncPolicy policy) {
+        return new MutationJournal(directory, SEGMENT_SIZE, policy, Duration.ofMillis(10));
+    }
+
+    private List<JournalRecord> replay(MutationJournal journal) {
+        List<JournalRecord> records = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        journal.replay((sequence, record) -> {
+            sequences.add(sequence);
+            records.add(record);
+        });
+        assertThat(sequences).isSorted();
+        return records;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    @Test
+    void recordsAfterTheCheckpointAreReplayedAfterReopening() throws Exception {
+        MutationJournal journal = open(FsyncPolicy.GROUP);
+        for (int i = 1; i <= 95; i++) {
+            journal.sync(journal.append(JournalRecord.cartItem(i % 3, i, i)));
+        }
+        journal.checkpoint(42);
+        journal.close();
+        // Segments holding only sequences 1..40 are gone, the one holding 41..50 is kept
+        assertThat(segments()).hasSize(6);
+
+        MutationJournal reopened = open(FsyncPolicy.GROUP);
+        assertThat(reopened.lastSequence()).isEqualTo(95);
+        List<JournalRecord> records = replay(reopened);
+        assertThat(records).hasSize(53);
+        assertThat(records.getFirst()).isEqualTo(JournalRecord.cartItem(43 % 3, 43, 43));
+        assertThat(records.getLast()).isEqualTo(JournalRecord.cartItem(95 % 3, 95, 95));
+
+        reopened.checkpoint(reopened.lastSequence());
+        assertThat(replay(reopened)).isEmpty();
+        reopened.close();
+    }
+
+    @Test
+    void tornLastRecordIsDroppedAndItsSequenceReused() throws Exception {
+        MutationJournal journal = open(FsyncPolicy.GROUP);
+        for (int i = 1; i <= 15; i++) {
+            journal.sync(journal.append(JournalRecord.cartItem(1, i, i)));
+        }
+        journal.close();
+
+        // Flip a payload byte of the 15th record, the 5th frame of the second segment
+        try (RandomAccessFile file = new RandomAccessFile(segments().getLast().toFile(), "rw")) {
+            long offset = 16 + 4L * FRAME_SIZE + 20;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+
+        MutationJournal reopened = open(FsyncPolicy.GROUP);
+        assertThat(reopened.lastSequence()).isEqualTo(14);
+        assertThat(replay(reopened)).hasSize(14);
+        assertThat(reopened.append(JournalRecord.cartItem(1, 99, 1))).isEqualTo(15);
+        assertThat(replay(reopened).getLast()).isEqualTo(JournalRecord.cartItem(1, 99, 1));
+        reopened.close();
+    }
+
+    @Test
+    void concurrentAppendsAreReplayedInOrderAfterACrash() throws Exception {
+        int threads = 4;
+        int appendsPerThread = 200;
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            Path policyDirectory = Files.createDirectory(directory.resolve(policy.name()));
+            // Small segments so the appends roll over while other threads force
+            MutationJournal journal = new MutationJournal(policyDirectory, SEGMENT_SIZE, policy, Duration.ofMillis(1));
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long cartId = t + 1;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        journal.sync(journal.append(JournalRecord.cartItem(cartId, i, i + 1)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            // Reopened without closing, as after a crash of the process
+            MutationJournal reopened = new MutationJournal(policyDirectory, SEGMENT_SIZE, policy, Duration.ofMillis(1));
+            List<Long> sequences = new ArrayList<>();
+            List<JournalRecord> records = new ArrayList<>();
+            reopened.replay((sequence, record) -> {
+                sequences.add(sequence);
+                records.add(record);
+            });
+            assertThat(sequences).hasSize(threads * appendsPerThread);
+            assertThat(sequences.getFirst()).isEqualTo(1);
+            assertThat(sequences.getLast()).isEqualTo(threads * appendsPerThread);
+            for (long cartId = 1; cartId <= threads; cartId++) {
+                long cart = cartId;
+                // Each thread's records come back once each, in the order it appended them
+                assertThat(records.stream()
+                        .filter(record -> record.basketId() == cart)
+                        .map(JournalRecord::productId)
+                        .toList()).isEqualTo(LongStream.range(0, appendsPerThread).boxed().toList());
+            }
+            journal.close();
+            reopened.close();
+        }
+    }
+}
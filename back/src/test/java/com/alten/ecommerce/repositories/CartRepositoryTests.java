@@ -0,0 +1,300 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.models.CartItem;
+import com.alten.ecommerce.models.dtos.CartDTO;
+import com.alten.ecommerce.models.dtos.CartItemDTO;
+import com.alten.ecommerce.models.dtos.CartLineCheckDTO;
+import com.alten.ecommerce.models.dtos.CartRevalidationDTO;
+import com.alten.ecommerce.repositories.CartRepositoryCustom.LineChange;
+import com.alten.ecommerce.services.CartService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartrepository;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog"
+})
+@Transactional
+class CartRepositoryTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final LocalDateTime emptyBefore = now.minusDays(1);
+    private final LocalDateTime abandonedBefore = now.minusDays(30);
+
+    @Test
+    void writeLinesInsertsUpdatesAndDeletesLines() {
+        long cart = cart(now);
+        long kept = product(new BigDecimal("2.00"), 10);
+        long removed = product(BigDecimal.ONE, 10);
+        long deleted = product(BigDecimal.ONE, 10);
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", deleted);
+
+        cartRepository.writeLines(List.of(
+                new LineChange(cart, kept, 2, null),
+                new LineChange(cart, removed, 1, new BigDecimal("0.50"))));
+        assertThat(lines(cart)).containsExactly(kept + "x2@2.00", removed + "x1@0.50");
+
+        // Without a price, as replayed from the journal, an existing line keeps the price it was added at
+        jdbcTemplate.update("UPDATE products SET price = 3 WHERE id = ?", kept);
+        assertThat(cartRepository.writeLines(List.of(
+                new LineChange(cart, kept, 5, null),
+                new LineChange(cart, removed, 0, null),
+                new LineChange(cart, deleted, 1, null))))
+                .isEmpty();
+        assertThat(lines(cart)).containsExactly(kept + "x5@2.00");
+
+        assertThat(cartRepository.writeLines(List.of(new LineChange(cart, kept, 6, new BigDecimal("3.00"))))).isEmpty();
+        assertThat(lines(cart)).containsExactly(kept + "x6@3.00");
+    }
+
+    @Test
+    void addToLineInsertsThenAddsToTheQuantity() {
+        long cart = cart(now);
+        long product = product(BigDecimal.ONE, 10);
+
+        assertThat(cartRepository.addToLine(cart, product, 2, new BigDecimal("1.00"))).isTrue();
+        assertThat(cartRepository.addToLine(cart, product, 3, new BigDecimal("1.50"))).isFalse();
+        assertThat(lines(cart)).containsExactly(product + "x5@1.50");
+    }
+
+    @Test
+    void addToLineLosingAnInsertRaceRetriesAsAnUpdate() {
+        long cart = cart(now);
+        long product = product(BigDecimal.ONE, 10);
+        // Another request inserts the line between this one's update, which matched nothing, and its insert
+        JdbcTemplate racing = new JdbcTemplate(dataSource) {
+            private boolean raced;
+
+            @Override
+            public int update(String sql, Object... args) {
+                int count = super.update(sql, args);
+                if (!raced) {
+                    raced = true;
+                    line(cart, product, 2);
+                }
+                return count;
+            }
+        };
+
+        assertThat(new CartRepositoryImpl(racing).addToLine(cart, product, 3, new BigDecimal("1.50"))).isFalse();
+        assertThat(lines(cart)).containsExactly(product + "x5@1.50");
+    }
+
+    @Test
+    void checkLinesReportsPriceAndStockChangesWithTheTotals() {
+        String email = user();
+        long cart = cart(email, now);
+        long repriced = product(new BigDecimal("2.00"), 10);
+        long soldOut = product(new BigDecimal("1.00"), 10);
+        long lowStock = product(new BigDecimal("4.00"), 10);
+        long unchanged = product(new BigDecimal("5.00"), 10);
+        line(cart, repriced, 1);
+        line(cart, soldOut, 1);
+        line(cart, lowStock, 2);
+        line(cart, unchanged, 1);
+        jdbcTemplate.update("UPDATE products SET price = 3 WHERE id = ?", repriced);
+        jdbcTemplate.update("UPDATE products SET quantity = 0, inventory_status = 'OUTOFSTOCK' WHERE id = ?", soldOut);
+        jdbcTemplate.update("UPDATE products SET quantity = 1 WHERE id = ?", lowStock);
+
+        CartRevalidationDTO revalidation = CartRevalidationDTO.fromLines(cartRepository.checkLines(email));
+
+        assertThat(revalidation.cartId()).isEqualTo(cart);
+        assertThat(revalidation.changed()).isTrue();
+        assertThat(revalidation.lines()).extracting(CartLineCheckDTO::productId)
+                .containsExactly(repriced, soldOut, lowStock, unchanged);
+        assertThat(revalidation.lines()).extracting(CartLineCheckDTO::priceChanged)
+                .containsExactly(true, false, false, false);
+        assertThat(revalidation.lines()).extracting(CartLineCheckDTO::outOfStock)
+                .containsExactly(false, true, false, false);
+        assertThat(revalidation.lines()).extracting(CartLineCheckDTO::insufficientStock)
+                .containsExactly(false, true, true, false);
+        assertThat(revalidation.lines().getFirst().priceDelta()).isEqualByComparingTo("1.00");
+        assertThat(revalidation.addedTotal()).isEqualByComparingTo("16.00");
+        assertThat(revalidation.currentTotal()).isEqualByComparingTo("17.00");
+        assertThat(revalidation.availableTotal()).isEqualByComparingTo("8.00");
+    }
+
+    @Test
+    void checkLinesOfAnEmptyOrMissingCart() {
+        String email = user();
+        assertThat(CartRevalidationDTO.fromLines(cartRepository.checkLines(email)).cartId()).isNull();
+
+        long cart = cart(email, now);
+        CartRevalidationDTO revalidation = CartRevalidationDTO.fromLines(cartRepository.checkLines(email));
+        assertThat(revalidation.cartId()).isEqualTo(cart);
+        assertThat(revalidation.lines()).isEmpty();
+        assertThat(revalidation.changed()).isFalse();
+        assertThat(revalidation.addedTotal()).isEqualByComparingTo("0");
+        assertThat(revalidation.availableTotal()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void sweepCandidatesAreOldEmptyCartsAndAbandonedCartsById() {
+        long product = product(BigDecimal.TEN, 10);
+        long oldEmpty = cart(now.minusDays(2));
+        long oldWithLines = cart(now.minusDays(2));
+        line(oldWithLines, product, 1);
+        long abandoned = cart(now.minusDays(31));
+        line(abandoned, product, 1);
+        cart(now);
+
+        assertThat(cartRepository.findSweepCandidates(0, emptyBefore, abandonedBefore, 10))
+                .containsExactly(oldEmpty, abandoned);
+        assertThat(cartRepository.findSweepCandidates(0, emptyBefore, abandonedBefore, 1))
+                .containsExactly(oldEmpty);
+        assertThat(cartRepository.findSweepCandidates(oldEmpty, emptyBefore, abandonedBefore, 10))
+                .containsExactly(abandoned);
+    }
+
+    @Test
+    void sweepArchivesAbandonedLinesAndKeepsCartsUsedSinceSelection() {
+        long product = product(new BigDecimal("4.50"), 10);
+        long used = cart(now.minusDays(2));
+        long abandoned = cart(now.minusDays(31));
+        line(abandoned, product, 3);
+        List<Long> candidates = cartRepository.findSweepCandidates(0, emptyBefore, abandonedBefore, 10);
+        assertThat(candidates).containsExactly(used, abandoned);
+
+        assertThat(cartRepository.touch(used)).isTrue();
+
+        assertThat(cartRepository.sweep(candidates, emptyBefore, abandonedBefore, true)).containsExactly(abandoned);
+        assertThat(cartRepository.existsById(used)).isTrue();
+        assertThat(cartRepository.existsById(abandoned)).isFalse();
+        assertThat(queryInt("SELECT COUNT(*) FROM cart_items WHERE cart_id = ?", abandoned)).isZero();
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT quantity, unit_price FROM abandoned_cart_items WHERE cart_id = ? AND product_id = ?",
+                abandoned, product))
+                .singleElement()
+                .satisfies(row -> {
+                    assertThat(row.get("QUANTITY")).isEqualTo(3);
+                    assertThat(row.get("UNIT_PRICE")).isEqualTo(new BigDecimal("4.50"));
+                });
+    }
+
+    @Test
+    void writesToASweptCartAreReportedInsteadOfDropped() {
+        long product = product(BigDecimal.ONE, 10);
+        long swept = cart(now.minusDays(2));
+        long live = cart(now);
+        assertThat(cartRepository.sweep(List.of(swept), emptyBefore, abandonedBefore, false)).containsExactly(swept);
+
+        assertThat(cartRepository.touch(swept)).isFalse();
+        assertThat(cartRepository.writeLines(List.of(
+                new LineChange(swept, product, 2, null),
+                new LineChange(live, product, 2, null))))
+                .containsExactly(swept);
+        assertThat(queryInt("SELECT COUNT(*) FROM cart_items WHERE cart_id = ?", swept)).isZero();
+        assertThat(queryInt("SELECT quantity FROM cart_items WHERE cart_id = ?", live)).isEqualTo(2);
+    }
+
+    @Test
+    void cartIsCreatedByTheFirstAddAndAgainAfterASweep() {
+        String email = user();
+        long product = product(BigDecimal.ONE, 10);
+        assertThat(cartService.getCart(email).id()).isNull();
+        assertThat(cartRepository.findIdByUserEmail(email)).isEmpty();
+
+        CartDTO created = cartService.addItemToCart(email, new CartItemDTO(product, 1));
+        assertThat(cartRepository.findIdByUserEmail(email)).contains(created.id());
+
+        age(created.id(), now.minusDays(31));
+        assertThat(cartRepository.sweep(List.of(created.id()), emptyBefore, abandonedBefore, false))
+                .containsExactly(created.id());
+        CartDTO recreated = cartService.addItemToCart(email, new CartItemDTO(product, 2));
+        assertThat(recreated.id()).isNotEqualTo(created.id());
+        assertThat(recreated.items()).containsExactly(new CartItemDTO(product, 2));
+    }
+
+    @Test
+    void addingPastTheMaximumQuantityIsABadRequest() {
+        String email = user();
+        long product = product(BigDecimal.ONE, CartItem.MAX_QUANTITY + 1);
+        cartService.addItemToCart(email, new CartItemDTO(product, CartItem.MAX_QUANTITY));
+
+        assertThatThrownBy(() -> cartService.addItemToCart(email, new CartItemDTO(product, 1)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThat(cartService.getCart(email).items()).containsExactly(new CartItemDTO(product, CartItem.MAX_QUANTITY));
+    }
+
+    private String user() {
+        String email = "cart-" + SEQUENCE.incrementAndGet() + "@test.com";
+        jdbcTemplate.update("INSERT INTO users (username, firstname, email, password, created_at, updated_at) "
+                + "VALUES (?, 'Test', ?, 'x', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", email, email);
+        return email;
+    }
+
+    private long userId(String email) {
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    private long product(BigDecimal price, int stock) {
+        String code = "P" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO categories (name, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", code);
+        jdbcTemplate.update("INSERT INTO products (code, name, category_id, price, quantity, inventory_status, "
+                + "created_at, updated_at) SELECT ?, ?, id, ?, ?, 'INSTOCK', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM categories WHERE name = ?", code, code, price, stock, code);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE code = ?", Long.class, code);
+    }
+
+    private long cart(LocalDateTime updatedAt) {
+        return cart(user(), updatedAt);
+    }
+
+    private long cart(String email, LocalDateTime updatedAt) {
+        long userId = userId(email);
+        jdbcTemplate.update("INSERT INTO carts (user_id, created_at, updated_at) VALUES (?, ?, ?)",
+                userId, Timestamp.valueOf(updatedAt), Timestamp.valueOf(updatedAt));
+        return jdbcTemplate.queryForObject("SELECT id FROM carts WHERE user_id = ?", Long.class, userId);
+    }
+
+    private void line(long cartId, long productId, int quantity) {
+        jdbcTemplate.update("INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, created_at, updated_at) "
+                + "SELECT ?, id, ?, price, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM products WHERE id = ?",
+                cartId, quantity, productId);
+    }
+
+    private void age(long cartId, LocalDateTime updatedAt) {
+        jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE id = ?", Timestamp.valueOf(updatedAt), cartId);
+    }
+
+    private List<String> lines(long cartId) {
+        return jdbcTemplate.query("SELECT product_id, quantity, unit_price FROM cart_items WHERE cart_id = ? ORDER BY id",
+                (rs, rowNum) -> rs.getLong("product_id") + "x" + rs.getInt("quantity") + "@" + rs.getBigDecimal("unit_price"),
+                cartId);
+    }
+
+    private int queryInt(String sql, long cartId) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, cartId);
+    }
+}
@@ -0,0 +1,98 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.repositories.ProductStatsRepositoryCustom.Delta;
+import com.alten.ecommerce.services.impl.ProductStatsServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productstatsrepository;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog"
+})
+@Transactional
+class ProductStatsRepositoryTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private ProductStatsRepository productStatsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void addCountsCreatesThenIncrementsRowsAndSkipsDeletedProducts() {
+        long first = product();
+        long second = product();
+        long deleted = product();
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", deleted);
+
+        productStatsRepository.addCounts(List.of(new Delta(first, 3, 1), new Delta(deleted, 1, 1)));
+        productStatsRepository.addCounts(List.of(new Delta(first, 2, 0), new Delta(second, 0, 4)));
+
+        assertThat(counts(first)).isEqualTo("5/1");
+        assertThat(counts(second)).isEqualTo("0/4");
+        assertThat(rows(deleted)).isZero();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void failedBatchChangesNothingAndIsCountedOnceWhenRetried() {
+        long product = product();
+        long overflowing = product();
+        jdbcTemplate.update("INSERT INTO product_stats (product_id, view_count, cart_add_count, updated_at) "
+                + "VALUES (?, ?, 0, CURRENT_TIMESTAMP)", overflowing, Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> productStatsRepository.addCounts(
+                List.of(new Delta(product, 1, 0), new Delta(overflowing, 1, 0))))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(rows(product)).isZero();
+
+        // The service puts a failed batch back and writes it again on the next flush
+        ProductStatsServiceImpl service = new ProductStatsServiceImpl(productStatsRepository, productRepository, 5, 500);
+        service.recordView(product);
+        service.recordView(overflowing);
+        service.flush();
+        assertThat(rows(product)).isZero();
+
+        jdbcTemplate.update("UPDATE product_stats SET view_count = 0 WHERE product_id = ?", overflowing);
+        service.flush();
+        assertThat(counts(product)).isEqualTo("1/0");
+        assertThat(counts(overflowing)).isEqualTo("1/0");
+        service.flush();
+        assertThat(counts(product)).isEqualTo("1/0");
+    }
+
+    private long product() {
+        String code = "S" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO categories (name, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", code);
+        jdbcTemplate.update("INSERT INTO products (code, name, category_id, price, quantity, inventory_status, "
+                + "created_at, updated_at) SELECT ?, ?, id, 10, 1, 'INSTOCK', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM categories WHERE name = ?", code, code, code);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE code = ?", Long.class, code);
+    }
+
+    private String counts(long productId) {
+        return jdbcTemplate.queryForObject("SELECT view_count, cart_add_count FROM product_stats WHERE product_id = ?",
+                (rs, rowNum) -> rs.getLong("view_count") + "/" + rs.getLong("cart_add_count"), productId);
+    }
+
+    private int rows(long productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_stats WHERE product_id = ?", Integer.class,
+                productId);
+    }
+}
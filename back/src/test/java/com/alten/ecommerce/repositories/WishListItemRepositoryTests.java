@@ -0,0 +1,114 @@
+package com.alten.ecommerce.repositories;
+
+import com.alten.ecommerce.analytics.CompressedBitmap;
+import com.alten.ecommerce.cache.WishListBitmapCache;
+import com.alten.ecommerce.models.dtos.WishListItemDTO;
+import com.alten.ecommerce.services.WishListService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:wishlistitemrepository;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog"
+})
+@Transactional
+class WishListItemRepositoryTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private WishListItemRepository wishListItemRepository;
+
+    @Autowired
+    private WishListService wishListService;
+
+    @Autowired
+    private WishListBitmapCache wishListBitmapCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void duplicateInsertIsRejectedAndReportedAsAConflict() {
+        String email = user();
+        long wishList = wishList(email);
+        long product = product();
+
+        assertThat(wishListItemRepository.insertItem(wishList, product)).isTrue();
+        assertThat(wishListItemRepository.insertItem(wishList, product)).isFalse();
+        assertThat(wishListItemRepository.findProductIdsByWishListId(wishList)).containsExactly(product);
+
+        // A bitmap that misses the item, so only the unique constraint catches the duplicate
+        jdbcTemplate.update("UPDATE wishlists SET product_bitmap = ? WHERE id = ?",
+                new CompressedBitmap().serialize(), wishList);
+        assertThatThrownBy(() -> wishListService.addItemToWishList(email, new WishListItemDTO(product)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(wishListItemRepository.findProductIdsByWishListId(wishList)).containsExactly(product);
+    }
+
+    @Test
+    void staleCachedBitmapDoesNotRejectAnAdd() {
+        String email = user();
+        long wishList = wishList(email);
+        long product = product();
+        // Removed on another node, whose invalidation has not reached this one yet
+        wishListBitmapCache.put(email, new WishListBitmapCache.Entry(wishList, Long.MAX_VALUE,
+                CompressedBitmap.of(List.of(product))));
+
+        assertThat(wishListService.addItemToWishList(email, new WishListItemDTO(product)).productIds())
+                .containsExactly(product);
+        assertThat(wishListItemRepository.findProductIdsByWishListId(wishList)).containsExactly(product);
+    }
+
+    @Test
+    void deleteItemOnlyDeletesFromTheGivenWishList() {
+        long wishList = wishList(user());
+        long other = wishList(user());
+        long product = product();
+        wishListItemRepository.insertItem(wishList, product);
+        long item = jdbcTemplate.queryForObject("SELECT id FROM wishlist_items WHERE wishlist_id = ?", Long.class,
+                wishList);
+
+        assertThat(wishListItemRepository.deleteItem(item, other)).isZero();
+        assertThat(wishListItemRepository.findProductIdsByWishListId(wishList)).containsExactly(product);
+
+        assertThat(wishListItemRepository.deleteItem(item, wishList)).isEqualTo(1);
+        assertThat(wishListItemRepository.findProductIdsByWishListId(wishList)).isEmpty();
+    }
+
+    private String user() {
+        String email = "wishlist-" + SEQUENCE.incrementAndGet() + "@test.com";
+        jdbcTemplate.update("INSERT INTO users (username, firstname, email, password, created_at, updated_at) "
+                + "VALUES (?, 'Test', ?, 'x', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", email, email);
+        return email;
+    }
+
+    private long wishList(String email) {
+        long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+        jdbcTemplate.update("INSERT INTO wishlists (user_id, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", userId);
+        return jdbcTemplate.queryForObject("SELECT id FROM wishlists WHERE user_id = ?", Long.class, userId);
+    }
+
+    private long product() {
+        String code = "W" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO categories (name, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", code);
+        jdbcTemplate.update("INSERT INTO products (code, name, category_id, price, quantity, inventory_status, "
+                + "created_at, updated_at) SELECT ?, ?, id, 10, 1, 'INSTOCK', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM categories WHERE name = ?", code, code, code);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE code = ?", Long.class, code);
+    }
+}
@@ -0,0 +1,147 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.analytics.CompressedBitmap;
+import com.alten.ecommerce.cache.CacheInvalidationEvent;
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.models.dtos.WishListItemDTO;
+import com.alten.ecommerce.notifications.BackInStockNotification;
+import com.alten.ecommerce.notifications.InMemoryNotificationSink;
+import com.alten.ecommerce.services.ProductService;
+import com.alten.ecommerce.services.WishListService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:backinstock;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog",
+        "app.notifications.back-in-stock.batch-size=2"
+})
+@WithMockUser(username = "admin@admin.com")
+class BackInStockServiceImplTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private BackInStockServiceImpl backInStockService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private WishListService wishListService;
+
+    @Autowired
+    private InMemoryNotificationSink sink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void onlyARestockNotifiesAndEveryHolderOnce() throws InterruptedException {
+        ProductDTO product = product();
+        List<String> holders = List.of(user(), user(), user());
+        holders.forEach(email -> wishListService.addItemToWishList(email, new WishListItemDTO(product.id())));
+
+        update(product, 0, InventoryStatus.INSTOCK);
+        update(product, 5, InventoryStatus.OUTOFSTOCK);
+        update(product, 5, InventoryStatus.INSTOCK);
+        update(product, 10, InventoryStatus.INSTOCK);
+
+        assertThat(awaitNotified(product, holders.size())).containsExactlyInAnyOrderElementsOf(holders);
+    }
+
+    @Test
+    void removedProductIsNotNotified() throws InterruptedException {
+        ProductDTO product = product();
+        String removed = user();
+        String kept = user();
+        wishListService.addItemToWishList(removed, new WishListItemDTO(product.id()));
+        wishListService.addItemToWishList(kept, new WishListItemDTO(product.id()));
+        wishListService.removeItemFromWishList(removed, jdbcTemplate.queryForObject(
+                "SELECT i.id FROM wishlist_items i JOIN wishlists w ON w.id = i.wishlist_id "
+                        + "JOIN users u ON u.id = w.user_id WHERE u.email = ?", Long.class, removed));
+
+        update(product, 5, InventoryStatus.INSTOCK);
+
+        assertThat(awaitNotified(product, 1)).containsExactly(kept);
+    }
+
+    @Test
+    void wishListWrittenOnAnotherNodeIsNotified() throws InterruptedException {
+        ProductDTO product = product();
+        String email = user();
+        // Committed by another node: this one only learns of it through the wishlist invalidation
+        jdbcTemplate.update("INSERT INTO wishlists (user_id, product_bitmap, product_bitmap_version, created_at, "
+                        + "updated_at) SELECT id, ?, 1, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM users WHERE email = ?",
+                CompressedBitmap.of(List.of(product.id())).serialize(), email);
+        backInStockService.onInvalidation(new CacheInvalidationEvent(1, CacheInvalidationEvent.EntityType.WISHLIST,
+                email, "other-node", false));
+
+        update(product, 5, InventoryStatus.INSTOCK);
+
+        assertThat(awaitNotified(product, 1)).containsExactly(email);
+    }
+
+    @Test
+    void olderWishListStateIsIgnored() throws InterruptedException {
+        ProductDTO product = product();
+        String email = user();
+        long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+        backInStockService.wishListChanged(userId, 2, CompressedBitmap.of(List.of(product.id())));
+        backInStockService.wishListChanged(userId, 1, new CompressedBitmap());
+
+        update(product, 5, InventoryStatus.INSTOCK);
+
+        assertThat(awaitNotified(product, 1)).containsExactly(email);
+    }
+
+    private List<String> awaitNotified(ProductDTO product, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (notified(product).size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        return notified(product);
+    }
+
+    private List<String> notified(ProductDTO product) {
+        return sink.recent().stream()
+                .filter(notification -> notification.productId().equals(product.id()))
+                .map(BackInStockNotification::email)
+                .toList();
+    }
+
+    private ProductDTO update(ProductDTO product, int quantity, InventoryStatus status) {
+        return productService.updateProduct(product.id(), new ProductDTO(product.id(), product.code(), product.name(),
+                null, null, product.category(), product.price(), quantity, null, null, status, null, null, null));
+    }
+
+    private String user() {
+        String email = "back-in-stock-" + SEQUENCE.incrementAndGet() + "@test.com";
+        jdbcTemplate.update("INSERT INTO users (username, firstname, email, password, created_at, updated_at) "
+                + "VALUES (?, 'Test', ?, 'x', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", email, email);
+        return email;
+    }
+
+    private ProductDTO product() {
+        String code = "BIS" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO categories (name, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", code);
+        jdbcTemplate.update("INSERT INTO products (code, name, category_id, price, quantity, inventory_status, "
+                + "created_at, updated_at) SELECT ?, ?, id, 10, 0, 'OUTOFSTOCK', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM categories WHERE name = ?", code, code, code);
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM products WHERE code = ?", Long.class, code);
+        return new ProductDTO(id, code, code, null, null, code, BigDecimal.TEN, 0, null, null,
+                InventoryStatus.OUTOFSTOCK, null, null, null);
+    }
+}
@@ -0,0 +1,85 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.events.ProductChangedEvent;
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.CatalogTotalsDTO;
+import com.alten.ecommerce.models.dtos.FacetFilterDTO;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogFacetServiceImplTests {
+
+    // Matches every product, so the facets are counted by scanning the entries instead of read from the counters
+    private static final FacetFilterDTO EVERYTHING = new FacetFilterDTO(null, null, BigDecimal.ZERO, null, null);
+
+    private final CatalogFacetServiceImpl service = new CatalogFacetServiceImpl(null);
+    private final Map<Long, ProductDTO> catalog = new HashMap<>();
+
+    private static ProductDTO product(long id, String category, InventoryStatus status, String price, String rating,
+                                      int quantity) {
+        return new ProductDTO(id, "code-" + id, "Product " + id, null, null, category, new BigDecimal(price),
+                quantity, null, null, status, rating == null ? null : new BigDecimal(rating), null, null);
+    }
+
+    private void create(ProductDTO product) {
+        catalog.put(product.id(), product);
+        service.onProductChanged(ProductChangedEvent.created(product));
+    }
+
+    private void update(ProductDTO product) {
+        service.onProductChanged(ProductChangedEvent.updated(catalog.put(product.id(), product), product));
+    }
+
+    private void delete(long id) {
+        service.onProductChanged(ProductChangedEvent.deleted(catalog.remove(id)));
+    }
+
+    @Test
+    void incrementalCountsMatchAFullRecount() {
+        create(product(1, "Fitness", InventoryStatus.INSTOCK, "9.99", "4.5", 10));
+        create(product(2, "Fitness", InventoryStatus.LOWSTOCK, "45.00", null, 2));
+        create(product(3, "Clothing", InventoryStatus.INSTOCK, "120.00", "5.0", 1));
+        assertMatchesRecount();
+
+        // Across price buckets, rating bands, statuses and categories
+        update(product(1, "Clothing", InventoryStatus.OUTOFSTOCK, "600.00", "1.2", 0));
+        update(product(2, "Fitness", InventoryStatus.INSTOCK, "45.00", "3.0", 7));
+        assertMatchesRecount();
+
+        delete(3);
+        assertMatchesRecount();
+        assertThat(service.getFacets(null).categories()).containsOnlyKeys("Clothing", "Fitness");
+
+        delete(1);
+        delete(2);
+        assertMatchesRecount();
+        assertThat(service.getTotals().inventoryValueByCategory()).isEmpty();
+    }
+
+    private void assertMatchesRecount() {
+        assertThat(service.getFacets(null)).isEqualTo(service.getFacets(EVERYTHING));
+
+        long units = 0;
+        BigDecimal value = BigDecimal.ZERO;
+        Map<String, BigDecimal> valueByCategory = new TreeMap<>();
+        for (ProductDTO product : catalog.values()) {
+            BigDecimal productValue = product.price().multiply(BigDecimal.valueOf(product.quantity()));
+            units += product.quantity();
+            value = value.add(productValue);
+            valueByCategory.merge(product.category(), productValue, BigDecimal::add);
+        }
+        CatalogTotalsDTO totals = service.getTotals();
+        assertThat(totals.productCount()).isEqualTo(catalog.size());
+        assertThat(totals.totalUnits()).isEqualTo(units);
+        assertThat(totals.inventoryValue()).isEqualByComparingTo(value);
+        assertThat(totals.inventoryValueByCategory()).usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactlyInAnyOrderEntriesOf(valueByCategory);
+    }
+}
@@ -0,0 +1,60 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.models.InventoryStatus;
+import com.alten.ecommerce.models.dtos.CatalogManifestDTO;
+import com.alten.ecommerce.models.dtos.ProductDTO;
+import com.alten.ecommerce.services.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalogsnapshot;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog",
+        "app.catalog.snapshot.debounce=0s",
+        // Rebuilds are only triggered by the test
+        "app.catalog.snapshot.check-interval-ms=3600000"
+})
+@WithMockUser(username = "admin@admin.com")
+class CatalogSnapshotServiceImplTests {
+
+    @Autowired
+    private CatalogSnapshotServiceImpl catalogSnapshotService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void productChangeWritesANewVersionWithAMatchingGzipEncoding() throws IOException {
+        CatalogManifestDTO before = catalogSnapshotService.getManifest().orElseThrow();
+        assertGzipMatches(before);
+
+        productService.createProduct(new ProductDTO(null, "SNAPSHOT1", "Snapshot", null, null, "Snapshots",
+                BigDecimal.TEN, 1, null, null, InventoryStatus.INSTOCK, null, null, null));
+        catalogSnapshotService.rebuildIfChanged();
+
+        CatalogManifestDTO after = catalogSnapshotService.getManifest().orElseThrow();
+        assertThat(after.version()).isNotEqualTo(before.version());
+        assertGzipMatches(after);
+        assertThat(new String(Files.readAllBytes(catalogSnapshotService.resolve(after.version(), false).orElseThrow())))
+                .contains("SNAPSHOT1");
+    }
+
+    private void assertGzipMatches(CatalogManifestDTO manifest) throws IOException {
+        byte[] json = Files.readAllBytes(catalogSnapshotService.resolve(manifest.version(), false).orElseThrow());
+        try (InputStream in = new GZIPInputStream(
+                Files.newInputStream(catalogSnapshotService.resolve(manifest.version(), true).orElseThrow()))) {
+            assertThat(in.readAllBytes()).isEqualTo(json);
+        }
+        assertThat(manifest.size()).isEqualTo(json.length);
+    }
+}
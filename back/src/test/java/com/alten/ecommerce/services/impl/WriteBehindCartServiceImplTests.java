@@ -0,0 +1,117 @@
+package com.alten.ecommerce.services.impl;
+
+import com.alten.ecommerce.models.CartItem;
+import com.alten.ecommerce.models.dtos.CartDTO;
+import com.alten.ecommerce.models.dtos.CartItemDTO;
+import com.alten.ecommerce.repositories.CartRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehindcart;DB_CLOSE_DELAY=-1",
+        "app.catalog.snapshot.root=target/test-catalog",
+        "app.cart.engine=write-behind",
+        "app.cart.sweeper.enabled=false"
+})
+class WriteBehindCartServiceImplTests {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private WriteBehindCartServiceImpl cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void flushWritesTheCartWithThePriceOfEachLastAdd() {
+        String email = user();
+        long first = product(new BigDecimal("2.00"), 10);
+        long second = product(new BigDecimal("5.00"), 10);
+        CartDTO cart = cartService.addItemToCart(email, new CartItemDTO(first, 1));
+        cartService.addItemToCart(email, new CartItemDTO(second, 2));
+
+        cartService.flush();
+        assertThat(lines(cart.id())).containsExactly(first + "x1@2.00", second + "x2@5.00");
+
+        jdbcTemplate.update("UPDATE products SET price = 3 WHERE id = ?", first);
+        cartService.addItemToCart(email, new CartItemDTO(first, 1));
+        cartService.flush();
+        assertThat(lines(cart.id())).containsExactly(first + "x2@3.00", second + "x2@5.00");
+        assertThat(cartService.getCart(email).items())
+                .containsExactly(new CartItemDTO(first, 2), new CartItemDTO(second, 2));
+    }
+
+    @Test
+    void addingPastTheMaximumQuantityIsABadRequest() {
+        String email = user();
+        long product = product(BigDecimal.ONE, CartItem.MAX_QUANTITY + 1);
+        cartService.addItemToCart(email, new CartItemDTO(product, CartItem.MAX_QUANTITY));
+
+        assertThatThrownBy(() -> cartService.addItemToCart(email, new CartItemDTO(product, 1)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThat(cartService.getCart(email).items()).containsExactly(new CartItemDTO(product, CartItem.MAX_QUANTITY));
+    }
+
+    @Test
+    void linesOfACartSweptElsewhereMoveToANewCart() {
+        String email = user();
+        long product = product(BigDecimal.TEN, 10);
+        long swept = cartService.addItemToCart(email, new CartItemDTO(product, 1)).id();
+        cartService.flush();
+
+        // Deleted by another node's sweeper: no event reaches this one, which still holds the cart
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE id = ?", now.minusDays(31), swept);
+        assertThat(cartRepository.sweep(List.of(swept), now.minusDays(1), now.minusDays(30), false))
+                .containsExactly(swept);
+        cartService.addItemToCart(email, new CartItemDTO(product, 2));
+        cartService.flush();
+        cartService.flush();
+
+        Long recreated = cartRepository.findIdByUserEmail(email).orElseThrow();
+        assertThat(recreated).isNotEqualTo(swept);
+        assertThat(cartService.getCart(email).id()).isEqualTo(recreated);
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE cart_id = ? AND product_id = ?",
+                Integer.class, recreated, product)).isEqualTo(3);
+    }
+
+    private List<String> lines(long cartId) {
+        return jdbcTemplate.query("SELECT product_id, quantity, unit_price FROM cart_items WHERE cart_id = ? ORDER BY id",
+                (rs, rowNum) -> rs.getLong("product_id") + "x" + rs.getInt("quantity") + "@" + rs.getBigDecimal("unit_price"),
+                cartId);
+    }
+
+    private String user() {
+        String email = "write-behind-" + SEQUENCE.incrementAndGet() + "@test.com";
+        jdbcTemplate.update("INSERT INTO users (username, firstname, email, password, created_at, updated_at) "
+                + "VALUES (?, 'Test', ?, 'x', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", email, email);
+        return email;
+    }
+
+    private long product(BigDecimal price, int stock) {
+        String code = "WB" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO categories (name, created_at, updated_at) "
+                + "VALUES (?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", code);
+        jdbcTemplate.update("INSERT INTO products (code, name, category_id, price, quantity, inventory_status, "
+                + "created_at, updated_at) SELECT ?, ?, id, ?, ?, 'INSTOCK', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM categories WHERE name = ?", code, code, price, stock, code);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE code = ?", Long.class, code);
+    }
+}